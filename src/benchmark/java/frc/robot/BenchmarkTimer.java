@@ -0,0 +1,35 @@
+package frc.robot;
+
+import java.util.Arrays;
+
+/** Times code for the benchmarks. The numbers only get printed since they depend on the machine */
+public final class BenchmarkTimer {
+  private static final int BATCHES = 21;
+
+  private BenchmarkTimer() {}
+
+  /**
+   * Times something that runs over and over. Takes the median of the batch means, so a GC or
+   * context switch in one batch doesn't decide it
+   *
+   * @param run what to time
+   * @param warmupRuns how many times to run it first so the JIT has compiled it
+   * @param runsPerBatch how many times to run it in each timed batch
+   * @return the median time per run in nanoseconds
+   */
+  public static double medianNanos(Runnable run, int warmupRuns, int runsPerBatch) {
+    for (int i = 0; i < warmupRuns; i++) {
+      run.run();
+    }
+    double[] batchNanos = new double[BATCHES];
+    for (int batch = 0; batch < BATCHES; batch++) {
+      long start = System.nanoTime();
+      for (int i = 0; i < runsPerBatch; i++) {
+        run.run();
+      }
+      batchNanos[batch] = (System.nanoTime() - start) / (double) runsPerBatch;
+    }
+    Arrays.sort(batchNanos);
+    return batchNanos[BATCHES / 2];
+  }
+}
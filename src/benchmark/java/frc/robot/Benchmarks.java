@@ -0,0 +1,16 @@
+package frc.robot;
+
+import frc.robot.subsystems.colorsensor.BallColorClassifierBenchmark;
+
+/**
+ * Runs every benchmark and prints how long each thing took. Nothing passes or fails, timings depend
+ * too much on the machine for that. Run with ./gradlew benchmark
+ */
+public final class Benchmarks {
+  private Benchmarks() {}
+
+  public static void main(String... args) {
+    TransitionEvalBenchmark.run();
+    BallColorClassifierBenchmark.run();
+  }
+}
@@ -0,0 +1,52 @@
+package frc.robot;
+
+import edu.wpi.first.wpilibj.event.EventLoop;
+import edu.wpi.first.wpilibj2.command.Commands;
+import edu.wpi.first.wpilibj2.command.button.Trigger;
+import frc.robot.Superstructure.Transition;
+import frc.robot.sim.SimHarness;
+import java.util.Locale;
+
+/**
+ * Times the transition table against binding every edge as its own Trigger, the way it worked
+ * before, on the same edges and the same sim inputs
+ */
+final class TransitionEvalBenchmark {
+  private static final int WARMUP_LOOPS = 50_000;
+  private static final int LOOPS_PER_BATCH = 10_000;
+
+  private TransitionEvalBenchmark() {}
+
+  static void run() {
+    try (SimHarness sim = new SimHarness()) {
+      sim.enable();
+      sim.run(0.1);
+
+      Superstructure superstructure = sim.superstructure;
+      EventLoop perEdgeLoop = new EventLoop();
+      // These don't change the state, they only fire
+      for (Transition transition : superstructure.getTransitions()) {
+        new Trigger(perEdgeLoop, () -> transition.matches(superstructure.getState()))
+            .and(transition.guard())
+            .onTrue(Commands.runOnce(() -> {}));
+      }
+
+      // Back to back so the JIT has had the same chance at both
+      time(superstructure::takeTransition);
+      time(perEdgeLoop::poll);
+      double tableNanos = time(superstructure::takeTransition);
+      double perEdgeNanos = time(perEdgeLoop::poll);
+
+      System.out.printf(
+          Locale.ROOT,
+          "Transition eval: table %.1f ns, per edge triggers %.1f ns (%.1fx)%n",
+          tableNanos,
+          perEdgeNanos,
+          perEdgeNanos / tableNanos);
+    }
+  }
+
+  private static double time(Runnable eval) {
+    return BenchmarkTimer.medianNanos(eval, WARMUP_LOOPS, LOOPS_PER_BATCH);
+  }
+}
@@ -0,0 +1,81 @@
+package frc.robot.subsystems.colorsensor;
+
+import edu.wpi.first.wpilibj.util.Color;
+import frc.robot.BenchmarkTimer;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Times the classifier against what it replaced: the IO turned the reading into a hex string, the
+ * subsystem parsed it back into a Color and compared it to thresholds. The thresholds were 100 on a
+ * 0 to 1 scale so that never matched anything, but the work was done every loop all the same
+ */
+public final class BallColorClassifierBenchmark {
+  private static final int READINGS = 1024;
+  private static final int WARMUP_PASSES = 200;
+  private static final int PASSES_PER_BATCH = 20;
+
+  // Results go here so the JIT can't drop the work
+  private static volatile int sink;
+
+  private BallColorClassifierBenchmark() {}
+
+  public static void run() {
+    double[][] readings = readings();
+    // Back to back so the JIT has had the same chance at both
+    time(() -> sink = classifyAll(readings));
+    time(() -> sink = hexRoundTripAll(readings));
+    double tableNanos = time(() -> sink = classifyAll(readings));
+    double hexNanos = time(() -> sink = hexRoundTripAll(readings));
+
+    System.out.printf(
+        Locale.ROOT,
+        "Color classify: table %.1f ns, hex round trip %.1f ns (%.1fx)%n",
+        tableNanos,
+        hexNanos,
+        hexNanos / tableNanos);
+  }
+
+  // Per reading rather than per pass
+  private static double time(Runnable pass) {
+    return BenchmarkTimer.medianNanos(pass, WARMUP_PASSES, PASSES_PER_BATCH) / READINGS;
+  }
+
+  // Spread around both balls and off towards neither, some with nothing in front of the sensor
+  private static double[][] readings() {
+    Random random = new Random(0);
+    double[][] readings = new double[READINGS][];
+    for (int i = 0; i < READINGS; i++) {
+      double[] center =
+          switch (i % 3) {
+            case 0 -> BallColorClassifier.RED_BALL;
+            case 1 -> BallColorClassifier.BLUE_BALL;
+            default -> new double[] {0.25, 0.5, 0.25};
+          };
+      double red = center[0] + random.nextGaussian() * 0.05;
+      double blue = center[2] + random.nextGaussian() * 0.05;
+      double proximity = random.nextInt(2048);
+      readings[i] = new double[] {red, 1.0 - red - blue, blue, proximity};
+    }
+    return readings;
+  }
+
+  private static int classifyAll(double[][] readings) {
+    int sum = 0;
+    for (double[] reading : readings) {
+      sum += BallColorClassifier.classify(reading[0], reading[2], (int) reading[3]).ordinal();
+    }
+    return sum;
+  }
+
+  private static int hexRoundTripAll(double[][] readings) {
+    int sum = 0;
+    for (double[] reading : readings) {
+      String hex = new Color(reading[0], reading[1], reading[2]).toHexString();
+      Color sensed = new Color(hex);
+      if (sensed.blue > 100 || sensed.red > 100) sum++;
+      sum += hex.length();
+    }
+    return sum;
+  }
+}
@@ -9,15 +9,26 @@ import com.ctre.phoenix6.SignalLogger;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.sim.SimWorld;
 import frc.robot.subsystems.ArmSubsystem;
 import frc.robot.subsystems.IntakeSubsystem;
 import frc.robot.subsystems.RoutingSubsystem;
 import frc.robot.subsystems.elevator.ElevatorSubsystem;
+import frc.robot.util.AllocationMonitor;
+import frc.robot.util.AsyncWPILOGWriter;
+import frc.robot.util.AsyncWPILOGWriter.BackpressurePolicy;
+import frc.robot.util.CANBusBudget;
 import frc.robot.util.CommandXboxControllerSubsystem;
+import frc.robot.util.DecimatingNT4Publisher;
+import frc.robot.util.HighFrequencySampler;
+import frc.robot.util.IOInputsPipeline;
+import frc.robot.util.LoadShedder;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.LoopProfiler.Section;
+import frc.robot.util.PhoenixSignals;
 import org.littletonrobotics.junction.LogFileUtil;
 import org.littletonrobotics.junction.LoggedRobot;
 import org.littletonrobotics.junction.Logger;
-import org.littletonrobotics.junction.networktables.NT4Publisher;
 import org.littletonrobotics.junction.wpilog.WPILOGReader;
 import org.littletonrobotics.junction.wpilog.WPILOGWriter;
 
@@ -41,15 +52,27 @@ public class Robot extends LoggedRobot {
     }
   }
 
-  // Change SIM to REPLAY to run robot in replay mode
-  public static final RobotType ROBOT_TYPE = Robot.isReal() ? RobotType.REAL : RobotType.SIM;
+  // Set to a log path to run in replay mode, or to an empty string to pick the log interactively.
+  // Batch replay sets this on each of its workers
+  public static final String REPLAY_LOG_PROPERTY = "replay.log";
+  // Where to write the replayed log. Defaults to the replayed log's path with _sim on the end
+  public static final String REPLAY_OUTPUT_PROPERTY = "replay.output";
+
+  // Runs in replay mode when the replay log property is set, e.g. -Dreplay.log=
+  public static final RobotType ROBOT_TYPE =
+      Robot.isReal()
+          ? RobotType.REAL
+          : System.getProperty(REPLAY_LOG_PROPERTY) != null ? RobotType.REPLAY : RobotType.SIM;
 
   private final CANBus canivore = new CANBus("*");
 
-  private final ArmSubsystem arm = new ArmSubsystem();
-  private final ElevatorSubsystem elevator = new ElevatorSubsystem();
-  private final RoutingSubsystem routing = new RoutingSubsystem();
-  private final IntakeSubsystem intake = new IntakeSubsystem();
+  // Reads every subsystem's IO in parallel. Has to exist before the subsystems register with it
+  private final IOInputsPipeline inputsPipeline = new IOInputsPipeline(2);
+
+  private final ArmSubsystem arm = new ArmSubsystem(inputsPipeline);
+  private final ElevatorSubsystem elevator = new ElevatorSubsystem(inputsPipeline);
+  private final RoutingSubsystem routing = new RoutingSubsystem(inputsPipeline);
+  private final IntakeSubsystem intake = new IntakeSubsystem(inputsPipeline);
 
   private final CommandXboxControllerSubsystem driver = new CommandXboxControllerSubsystem(0);
   private final CommandXboxControllerSubsystem operator = new CommandXboxControllerSubsystem(1);
@@ -57,6 +80,13 @@ public class Robot extends LoggedRobot {
   private final Superstructure superstructure =
       new Superstructure(driver, operator, arm, intake, routing, elevator);
 
+  // Only on a real robot
+  private AsyncWPILOGWriter logWriter = null;
+
+  private final Section refreshSection = LoopProfiler.section("Signal Refresh");
+  private final Section inputsSection = LoopProfiler.section("Inputs");
+  private final Section simWorldSection = LoopProfiler.section("Sim World");
+
   public Robot() {
     DriverStation.silenceJoystickConnectionWarning(true);
     SignalLogger.enableAutoLogging(false);
@@ -80,38 +110,97 @@ public class Robot extends LoggedRobot {
         break;
     }
 
+    // Only what the dashboards use goes over the radio, everything still goes in the log.
+    // Decimated by the load shedder when the loop falls behind
+    DecimatingNT4Publisher ntPublisher =
+        new DecimatingNT4Publisher()
+            // High rate samples and profiling are only useful looked at after the fact
+            .deny("**/sampleTimestamps", "**/*Samples*", "Perf/**")
+            .limitRate(
+                5.0,
+                "AllocationMonitor/**",
+                "AsyncWPILOGWriter/**",
+                "CANBusBudget/**",
+                "ControlFilter/**",
+                "IOInputsPipeline/**",
+                "PhoenixSignals/**");
+    LoadShedder.setNTPublisher(ntPublisher);
     switch (ROBOT_TYPE) {
       case REAL:
-        Logger.addDataReceiver(new WPILOGWriter("/U")); // Log to a USB stick
-        Logger.addDataReceiver(new NT4Publisher()); // Publish data to NetworkTables
+        // Log to a USB stick. Writes happen on a background thread so USB stalls don't hold up
+        // logging
+        logWriter = new AsyncWPILOGWriter("/U", BackpressurePolicy.DROP_DIAGNOSTICS);
+        Logger.addDataReceiver(logWriter);
+        Logger.addDataReceiver(ntPublisher); // Publish data to NetworkTables
         // Used to log power distribution but pretty sure CTRE PDP v2 doesn't log
         break;
       case REPLAY:
         setUseTiming(false); // Run as fast as possible
-        String logPath =
-            LogFileUtil
-                .findReplayLog(); // Pull the replay log from AdvantageScope (or prompt the user)
+        String logPath = System.getProperty(REPLAY_LOG_PROPERTY, "");
+        if (logPath.isEmpty()) {
+          // Pull the replay log from AdvantageScope (or prompt the user)
+          logPath = LogFileUtil.findReplayLog();
+        }
         Logger.setReplaySource(new WPILOGReader(logPath)); // Read replay log
         Logger.addDataReceiver(
             new WPILOGWriter(
-                LogFileUtil.addPathSuffix(logPath, "_sim"))); // Save outputs to a new log
+                System.getProperty(
+                    REPLAY_OUTPUT_PROPERTY,
+                    LogFileUtil.addPathSuffix(logPath, "_sim")))); // Save outputs to a new log
         break;
       case SIM:
-        Logger.addDataReceiver(new NT4Publisher()); // Publish data to NetworkTables
+        Logger.addDataReceiver(ntPublisher); // Publish data to NetworkTables
         break;
     }
+    // Every IO has registered its signals by now. Has to happen before the logger starts since the
+    // chosen rates are metadata
+    CANBusBudget.apply();
+
     Logger.start(); // Start logging! No more data receivers, replay sources, or metadata values may
     // be added.
 
+    // Only actually starts if an IO registered signals with it (never in sim)
+    HighFrequencySampler.getInstance().start();
+
+    // Superstructure has bound all its triggers by now
+    LoopProfiler.install();
+
     // Defualt commands bound to use superstructure
-    arm.setDefaultCommand(arm.setStateAngleVoltage(() -> superstructure.getState().getArmState()));
-    elevator.setDefaultCommand(
-        elevator.setStateExtension(() -> superstructure.getState().getElevatorState()));
+    arm.setDefaultCommand(arm.setStateAngleVoltage(superstructure::getArmState));
+    elevator.setDefaultCommand(elevator.setStateExtension(superstructure::getElevatorState));
+    // Intake and routing voltages are still guesses, so they only run the mechanisms in sim until
+    // they've been tried on the real thing
+    if (ROBOT_TYPE.isSimulation()) {
+      intake.setDefaultCommand(intake.setStateVoltage(superstructure::getIntakeState));
+      routing.setDefaultCommand(routing.setStateVoltage(superstructure::getRoutingState));
+    }
   }
 
   @Override
   public void robotPeriodic() {
+    AllocationMonitor.startLoop();
+    LoadShedder.startLoop();
+    // Inputs first so subsystem periodic, triggers and commands all see this loop's data.
+    // One batched refresh per CAN bus, then the IO just reads cached values
+    refreshSection.start();
+    PhoenixSignals.refreshAll();
+    refreshSection.stop();
+
+    inputsSection.start();
+    inputsPipeline.run();
+    inputsSection.stop();
+
+    LoopProfiler.startScheduler();
     CommandScheduler.getInstance().run();
+    LoopProfiler.stopScheduler();
+
+    CANBusBudget.periodic();
+    LoopProfiler.periodic();
+    if (logWriter != null) {
+      logWriter.recordStats();
+    }
+    LoadShedder.endLoop();
+    AllocationMonitor.endLoop();
   }
 
   @Override
@@ -151,4 +240,12 @@ public class Robot extends LoggedRobot {
 
   @Override
   public void testExit() {}
+
+  @Override
+  public void simulationPeriodic() {
+    // After the scheduler so the plants run on this loop's requests until next loop's inputs
+    simWorldSection.start();
+    SimWorld.step(getPeriod());
+    simWorldSection.stop();
+  }
 }
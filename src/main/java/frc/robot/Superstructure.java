@@ -1,96 +1,200 @@
 package frc.robot;
 
-import edu.wpi.first.wpilibj2.command.Command;
-import edu.wpi.first.wpilibj2.command.Commands;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
 import frc.robot.subsystems.ArmSubsystem;
 import frc.robot.subsystems.ArmSubsystem.ArmState;
 import frc.robot.subsystems.IntakeSubsystem;
+import frc.robot.subsystems.IntakeSubsystem.IntakeState;
 import frc.robot.subsystems.RoutingSubsystem;
+import frc.robot.subsystems.RoutingSubsystem.RoutingState;
 import frc.robot.subsystems.elevator.ElevatorSubsystem;
 import frc.robot.subsystems.elevator.ElevatorSubsystem.ElevatorState;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.LoopProfiler.Section;
+import frc.robot.util.TransitionLog;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.BooleanSupplier;
 import org.littletonrobotics.junction.AutoLogOutput;
 
 public class Superstructure {
-  public static enum State {
-    IDLE(0, false, ArmState.IDLE, ElevatorState.IDLE),
-
-    // Just balls
-    INTAKE_BALL_1(0, false, ArmState.IDLE, ElevatorState.IDLE),
-    INTAKE_BALL_2(1, false, ArmState.IDLE, ElevatorState.IDLE),
-    REJECT_BALL_1(0, false, ArmState.IDLE, ElevatorState.IDLE),
-    REJECT_BALL_2(1, false, ArmState.IDLE, ElevatorState.IDLE),
-    INDEX_BALL_1(1, false, ArmState.IDLE, ElevatorState.IDLE),
-    INDEX_BALL_2(2, false, ArmState.IDLE, ElevatorState.IDLE),
-    READY_BALL_1(1, false, ArmState.IDLE, ElevatorState.IDLE),
-    READY_BALL_2(2, false, ArmState.IDLE, ElevatorState.IDLE),
-    SHOOT_BALL_1(0, false, ArmState.IDLE, ElevatorState.IDLE),
-    SHOOT_BALL_2(1, false, ArmState.IDLE, ElevatorState.IDLE),
-
-    // Just panels
-    INTAKE_PANEL(0, false, ArmState.INTAKE_PANEL, ElevatorState.INTAKE_PANEL),
-    READY_PANEL(0, true, ArmState.READY_PANEL, ElevatorState.READY_PANEL),
-    SCORE_PANEL_LOW(0, false, ArmState.SCORE_PANEL, ElevatorState.SCORE_PANEL_LOW),
-    SCORE_PANEL_HIGH(0, false, ArmState.SCORE_PANEL, ElevatorState.SCORE_PANEL_HIGH),
-
-    // Both balls and panels
-    INTAKE_BALL_1_WITH_PANEL(0, true, ArmState.READY_PANEL, ElevatorState.READY_PANEL),
-    INTAKE_BALL_2_WITH_PANEL(1, true, ArmState.READY_PANEL, ElevatorState.READY_PANEL),
-    REJECT_BALL_1_WITH_PANEL(0, true, ArmState.READY_PANEL, ElevatorState.READY_PANEL),
-    REJECT_BALL_2_WITH_PANEL(1, true, ArmState.READY_PANEL, ElevatorState.READY_PANEL),
-    INDEX_BALL_1_WITH_PANEL(1, true, ArmState.READY_PANEL, ElevatorState.READY_PANEL),
-    INDEX_BALL_2_WITH_PANEL(2, true, ArmState.READY_PANEL, ElevatorState.READY_PANEL),
-    READY_BALL_1_WITH_PANEL(1, true, ArmState.READY_PANEL, ElevatorState.READY_PANEL),
-    READY_BALL_2_WITH_PANEL(2, true, ArmState.READY_PANEL, ElevatorState.READY_PANEL),
-    SHOOT_BALL_1_WITH_PANEL(0, true, ArmState.READY_PANEL, ElevatorState.READY_PANEL),
-    SHOOT_BALL_2_WITH_PANEL(1, true, ArmState.READY_PANEL, ElevatorState.READY_PANEL),
-
-    INTAKE_PANEL_WITH_BALL_1(1, false, ArmState.INTAKE_PANEL, ElevatorState.INTAKE_PANEL),
-    SCORE_PANEL_LOW_WITH_BALL_1(1, false, ArmState.SCORE_PANEL, ElevatorState.SCORE_PANEL_LOW),
-    SCORE_PANEL_HIGH_WITH_BALL_1(1, false, ArmState.SCORE_PANEL, ElevatorState.SCORE_PANEL_HIGH),
-    INTAKE_PANEL_WITH_BALL_2(2, false, ArmState.INTAKE_PANEL, ElevatorState.INTAKE_PANEL),
-    SCORE_PANEL_LOW_WITH_BALL_2(2, false, ArmState.SCORE_PANEL, ElevatorState.SCORE_PANEL_LOW),
-    SCORE_PANEL_HIGH_WITH_BALL_2(2, false, ArmState.SCORE_PANEL, ElevatorState.SCORE_PANEL_HIGH),
-    ;
-    // TODO: ADD MECH SPECIFIC STATES
-
-    private final int numBalls;
-    private final boolean hasPanel;
-    private final ArmState armState;
-    private final ElevatorState elevatorState;
-
-    // Put -1 for unknown amount of balls
-    private State(int numBalls, boolean hasPanel, ArmState armState, ElevatorState elevatorState) {
-      this.numBalls = numBalls;
-      this.hasPanel = hasPanel;
-      this.armState = armState;
-      this.elevatorState = elevatorState;
+  public static enum BallAction {
+    // NONE with balls is what used to be READY_BALL_X
+    NONE,
+    INTAKE,
+    REJECT,
+    INDEX,
+    SHOOT
+  }
+
+  public static enum PanelAction {
+    // NONE with a panel is what used to be READY_PANEL
+    NONE,
+    INTAKE,
+    SCORE_LOW,
+    SCORE_HIGH
+  }
+
+  /**
+   * The superstructure state packed into an int. Piece inventory and each mechanism's action get
+   * their own bits, so a transition only has to care about the bits it matches on
+   */
+  public static final class State {
+    // Number of balls held (0-2)
+    public static final int BALLS_SHIFT = 0;
+    public static final int BALLS_MASK = 0b11 << BALLS_SHIFT;
+
+    public static final int HAS_PANEL = 1 << 2;
+
+    public static final int BALL_ACTION_SHIFT = 3;
+    public static final int BALL_ACTION_MASK = 0b111 << BALL_ACTION_SHIFT;
+
+    public static final int PANEL_ACTION_SHIFT = 6;
+    public static final int PANEL_ACTION_MASK = 0b111 << PANEL_ACTION_SHIFT;
+
+    // TODO: ADD MECH SPECIFIC STATES (shooter, intake pivot) as more action fields above this
+    public static final int BITS = 9;
+    public static final int COUNT = 1 << BITS;
+
+    public static final int IDLE = 0;
+
+    private static final BallAction[] BALL_ACTIONS = BallAction.values();
+    private static final PanelAction[] PANEL_ACTIONS = PanelAction.values();
+
+    // Mechanism setpoints are derived from the panel and ball bits once, then looked up by packed
+    // state
+    private static final ArmState[] ARM_STATES = new ArmState[COUNT];
+    private static final ElevatorState[] ELEVATOR_STATES = new ElevatorState[COUNT];
+    private static final IntakeState[] INTAKE_STATES = new IntakeState[COUNT];
+    private static final RoutingState[] ROUTING_STATES = new RoutingState[COUNT];
+
+    static {
+      for (int state = 0; state < COUNT; state++) {
+        int ballAction = (state & BALL_ACTION_MASK) >> BALL_ACTION_SHIFT;
+        INTAKE_STATES[state] = IntakeState.IDLE;
+        ROUTING_STATES[state] = RoutingState.IDLE;
+        if (ballAction < BALL_ACTIONS.length) {
+          switch (BALL_ACTIONS[ballAction]) {
+            case INTAKE:
+              INTAKE_STATES[state] = IntakeState.INTAKE;
+              break;
+            case REJECT:
+              INTAKE_STATES[state] = IntakeState.REJECT;
+              break;
+            case INDEX:
+              INTAKE_STATES[state] = IntakeState.INDEX;
+              ROUTING_STATES[state] = RoutingState.INDEX;
+              break;
+            case SHOOT:
+              ROUTING_STATES[state] = RoutingState.SHOOT;
+              break;
+            case NONE:
+            default:
+              break;
+          }
+        }
+
+        int panelAction = (state & PANEL_ACTION_MASK) >> PANEL_ACTION_SHIFT;
+        if (panelAction >= PANEL_ACTIONS.length) {
+          // Not a reachable state
+          ARM_STATES[state] = ArmState.IDLE;
+          ELEVATOR_STATES[state] = ElevatorState.IDLE;
+          continue;
+        }
+
+        switch (PANEL_ACTIONS[panelAction]) {
+          case INTAKE:
+            ARM_STATES[state] = ArmState.INTAKE_PANEL;
+            ELEVATOR_STATES[state] = ElevatorState.INTAKE_PANEL;
+            break;
+          case SCORE_LOW:
+            ARM_STATES[state] = ArmState.SCORE_PANEL;
+            ELEVATOR_STATES[state] = ElevatorState.SCORE_PANEL_LOW;
+            break;
+          case SCORE_HIGH:
+            ARM_STATES[state] = ArmState.SCORE_PANEL;
+            ELEVATOR_STATES[state] = ElevatorState.SCORE_PANEL_HIGH;
+            break;
+          case NONE:
+          default:
+            boolean hasPanel = (state & HAS_PANEL) != 0;
+            ARM_STATES[state] = hasPanel ? ArmState.READY_PANEL : ArmState.IDLE;
+            ELEVATOR_STATES[state] = hasPanel ? ElevatorState.READY_PANEL : ElevatorState.IDLE;
+            break;
+        }
+      }
+    }
+
+    private State() {}
+
+    public static int balls(int numBalls) {
+      return (numBalls << BALLS_SHIFT) & BALLS_MASK;
+    }
+
+    public static int ballAction(BallAction action) {
+      return action.ordinal() << BALL_ACTION_SHIFT;
+    }
+
+    public static int panelAction(PanelAction action) {
+      return action.ordinal() << PANEL_ACTION_SHIFT;
+    }
+
+    public static int getNumBalls(int state) {
+      return (state & BALLS_MASK) >> BALLS_SHIFT;
+    }
+
+    public static boolean hasPanel(int state) {
+      return (state & HAS_PANEL) != 0;
+    }
+
+    public static BallAction getBallAction(int state) {
+      return BALL_ACTIONS[(state & BALL_ACTION_MASK) >> BALL_ACTION_SHIFT];
+    }
+
+    public static PanelAction getPanelAction(int state) {
+      return PANEL_ACTIONS[(state & PANEL_ACTION_MASK) >> PANEL_ACTION_SHIFT];
     }
 
-    public boolean hasNoBall() {
-      return numBalls == 0;
+    public static ArmState getArmState(int state) {
+      return ARM_STATES[state];
     }
 
-    public boolean hasOneBall() {
-      return numBalls == 1;
+    public static ElevatorState getElevatorState(int state) {
+      return ELEVATOR_STATES[state];
     }
 
-    public boolean hasTwoBalls() {
-      return numBalls == 2;
+    public static IntakeState getIntakeState(int state) {
+      return INTAKE_STATES[state];
     }
 
-    public boolean hasPanel() {
-      return hasPanel;
+    public static RoutingState getRoutingState(int state) {
+      return ROUTING_STATES[state];
     }
+  }
 
-    public ArmState getArmState() {
-      return armState;
+  // Ball edges don't care whether we're holding a panel, but don't run while a panel action is
+  private static final int BALL_EDGE_MASK =
+      State.BALLS_MASK | State.BALL_ACTION_MASK | State.PANEL_ACTION_MASK;
+  // Same as above but for edges that work with any number of balls
+  private static final int BALL_ACTION_EDGE_MASK = State.BALL_ACTION_MASK | State.PANEL_ACTION_MASK;
+  // Panel edges don't care how many balls we have, but don't run while a ball action is
+  private static final int PANEL_EDGE_MASK =
+      State.HAS_PANEL | State.BALL_ACTION_MASK | State.PANEL_ACTION_MASK;
+
+  /**
+   * An edge out of every state where (state & mask) == from. Taking it replaces the masked bits
+   * with to and leaves the rest alone. The id is its index in bind order, which is what gets logged
+   */
+  record Transition(int id, int mask, int from, int to, BooleanSupplier guard) {
+    boolean matches(int state) {
+      return (state & mask) == from;
     }
 
-    public ElevatorState getElevatorState() {
-      return elevatorState;
+    int apply(int state) {
+      return (state & ~mask) | to;
     }
   }
 
@@ -98,11 +202,21 @@ public class Superstructure {
   private final IntakeSubsystem intake;
   private final RoutingSubsystem routing;
 
+  // Edges are collected here while binding, then compiled into the table indexed by packed state
+  private final List<Transition> pendingTransitions = new ArrayList<>();
+  private Transition[] transitions;
+  private Transition[][] transitionTable;
+
+  private final TransitionLog transitionLog = new TransitionLog("Superstructure/Transitions", 16);
+
+  // Recorded rather than started and stopped, since it runs in the middle of trigger polling
+  private final Section transitionsSection = LoopProfiler.section("Superstructure/Transitions");
+
   @AutoLogOutput(key = "Superstructure/State")
-  private State state = State.IDLE;
+  private int state = State.IDLE;
 
   @AutoLogOutput(key = "Superstructure/Previous State")
-  private State prevState = State.IDLE;
+  private int prevState = State.IDLE;
 
   // Triggers
   private Trigger intakeBallReq;
@@ -137,6 +251,9 @@ public class Superstructure {
 
     scoreBallReq = driver.rightTrigger();
 
+    scorePanelHighReq = operator.rightBumper();
+    scorePanelLowReq = operator.leftBumper();
+
     intakeBeambreakTrigger = new Trigger(intake::getBeambreakIsDetected);
     correctBallColorTrigger = new Trigger(intake::sensedIsAllianceColor);
 
@@ -147,209 +264,219 @@ public class Superstructure {
 
     // Call this after setting triggers
     bindTransitions();
+    compileTransitions();
+
+    // Only the current state's edges get checked, once per loop in the scheduler's trigger poll.
+    // That runs after subsystem periodic (fresh inputs) and before commands execute, so the default
+    // commands pick up a new state in the same loop it was entered
+    CommandScheduler.getInstance().getDefaultButtonLoop().bind(this::evaluateTransitions);
   }
 
   private void bindTransitions() {
+    final int ballIdle = State.ballAction(BallAction.NONE);
+    final int intaking = State.ballAction(BallAction.INTAKE);
+    final int rejecting = State.ballAction(BallAction.REJECT);
+    final int indexing = State.ballAction(BallAction.INDEX);
+    final int shooting = State.ballAction(BallAction.SHOOT);
 
-    { // Ball states without panels
-      bindTransition(State.IDLE, State.INTAKE_BALL_1, intakeBallReq);
-
+    { // Ball states. These work the same with or without a panel
       bindTransition(
-          State.INTAKE_BALL_1,
-          State.INDEX_BALL_1,
-          intakeBallReq.negate().and(intakeBeambreakTrigger).and(correctBallColorTrigger));
+          BALL_EDGE_MASK, State.balls(0) | ballIdle, State.balls(0) | intaking, intakeBallReq);
 
       bindTransition(
-          State.INTAKE_BALL_1,
-          State.REJECT_BALL_1,
-          correctBallColorTrigger.negate().and(intakeBeambreakTrigger));
+          BALL_EDGE_MASK, State.balls(1) | ballIdle, State.balls(1) | intaking, intakeBallReq);
 
       bindTransition(
-          State.INTAKE_BALL_2,
-          State.INDEX_BALL_2,
+          BALL_EDGE_MASK,
+          State.balls(0) | intaking,
+          State.balls(1) | indexing,
           intakeBallReq.negate().and(intakeBeambreakTrigger).and(correctBallColorTrigger));
 
       bindTransition(
-          State.INTAKE_BALL_2,
-          State.REJECT_BALL_2,
+          BALL_EDGE_MASK,
+          State.balls(0) | intaking,
+          State.balls(0) | rejecting,
           correctBallColorTrigger.negate().and(intakeBeambreakTrigger));
 
-      bindTransition(State.REJECT_BALL_1, State.IDLE, intakeBeambreakTrigger.negate().debounce(1));
-
-      bindTransition(
-          State.REJECT_BALL_2, State.READY_BALL_1, intakeBeambreakTrigger.negate().debounce(1));
-
       bindTransition(
-          State.INDEX_BALL_1,
-          State.READY_BALL_1,
-          routingIndexerBeambreakTrigger); // TODO: IS THIS THE RIGHT CONDITION?
-
-      bindTransition(
-          State.INDEX_BALL_2,
-          State.READY_BALL_2,
-          intakeBeambreakTrigger.negate()); // Assume it indexes properly (maybe add a delay)
-
-      bindTransition(State.READY_BALL_1, State.SHOOT_BALL_1, scoreBallReq.and(atExtensionTrigger));
-
-      bindTransition(
-          State.SHOOT_BALL_1,
-          State.IDLE,
-          routingIndexerBeambreakTrigger.negate()); // TODO: Need to check this condition too...
-
-      bindTransition(State.READY_BALL_2, State.SHOOT_BALL_2, scoreBallReq.and(atExtensionTrigger));
-
-      // After it shoots, index the next one
-      bindTransition(
-          State.SHOOT_BALL_2,
-          State.INDEX_BALL_1,
-          routingIndexerBeambreakTrigger.negate()); // TODO: CORRECT CONDITION?
-    }
-
-    { // Ball states with panels
-      bindTransition(State.READY_PANEL, State.INTAKE_BALL_1_WITH_PANEL, intakeBallReq);
-
-      bindTransition(State.READY_BALL_1_WITH_PANEL, State.INTAKE_BALL_2_WITH_PANEL, intakeBallReq);
-
-      bindTransition(
-          State.INTAKE_BALL_1_WITH_PANEL,
-          State.INDEX_BALL_1_WITH_PANEL,
+          BALL_EDGE_MASK,
+          State.balls(1) | intaking,
+          State.balls(2) | indexing,
           intakeBallReq.negate().and(intakeBeambreakTrigger).and(correctBallColorTrigger));
 
       bindTransition(
-          State.INTAKE_BALL_1_WITH_PANEL,
-          State.REJECT_BALL_1_WITH_PANEL,
+          BALL_EDGE_MASK,
+          State.balls(1) | intaking,
+          State.balls(1) | rejecting,
           correctBallColorTrigger.negate().and(intakeBeambreakTrigger));
 
+      // Rejecting doesn't change how many balls we have
       bindTransition(
-          State.INTAKE_BALL_2_WITH_PANEL,
-          State.INDEX_BALL_2_WITH_PANEL,
-          intakeBallReq.negate().and(intakeBeambreakTrigger).and(correctBallColorTrigger));
-
-      bindTransition(
-          State.INTAKE_BALL_2_WITH_PANEL,
-          State.REJECT_BALL_2_WITH_PANEL,
-          correctBallColorTrigger.negate().and(intakeBeambreakTrigger));
-
-      bindTransition(
-          State.REJECT_BALL_1_WITH_PANEL,
-          State.READY_PANEL,
-          intakeBeambreakTrigger.negate().debounce(1));
-
-      bindTransition(
-          State.REJECT_BALL_2_WITH_PANEL,
-          State.READY_BALL_1_WITH_PANEL,
-          intakeBeambreakTrigger.negate().debounce(1));
+          BALL_ACTION_EDGE_MASK, rejecting, ballIdle, intakeBeambreakTrigger.negate().debounce(1));
 
       bindTransition(
-          State.INDEX_BALL_1_WITH_PANEL,
-          State.READY_BALL_1_WITH_PANEL,
+          BALL_EDGE_MASK,
+          State.balls(1) | indexing,
+          State.balls(1) | ballIdle,
           routingIndexerBeambreakTrigger); // TODO: IS THIS THE RIGHT CONDITION?
 
       bindTransition(
-          State.INDEX_BALL_2_WITH_PANEL,
-          State.READY_BALL_2_WITH_PANEL,
+          BALL_EDGE_MASK,
+          State.balls(2) | indexing,
+          State.balls(2) | ballIdle,
           intakeBeambreakTrigger.negate()); // Assume it indexes properly (maybe add a delay)
 
       bindTransition(
-          State.READY_BALL_1_WITH_PANEL,
-          State.SHOOT_BALL_1_WITH_PANEL,
+          BALL_EDGE_MASK,
+          State.balls(1) | ballIdle,
+          State.balls(0) | shooting,
           scoreBallReq.and(atExtensionTrigger));
 
       bindTransition(
-          State.SHOOT_BALL_1_WITH_PANEL,
-          State.READY_PANEL,
+          BALL_EDGE_MASK,
+          State.balls(0) | shooting,
+          State.balls(0) | ballIdle,
           routingIndexerBeambreakTrigger.negate()); // TODO: Need to check this condition too...
 
       bindTransition(
-          State.READY_BALL_2_WITH_PANEL,
-          State.SHOOT_BALL_2_WITH_PANEL,
+          BALL_EDGE_MASK,
+          State.balls(2) | ballIdle,
+          State.balls(1) | shooting,
           scoreBallReq.and(atExtensionTrigger));
 
       // After it shoots, index the next one
       bindTransition(
-          State.SHOOT_BALL_2_WITH_PANEL,
-          State.INDEX_BALL_1_WITH_PANEL,
+          BALL_EDGE_MASK,
+          State.balls(1) | shooting,
+          State.balls(1) | indexing,
           routingIndexerBeambreakTrigger.negate()); // TODO: CORRECT CONDITION?
     }
 
-    { // Panel states without balls
-      bindTransition(State.IDLE, State.INTAKE_PANEL, intakePanelReq);
-
-      bindTransition(State.INTAKE_PANEL, State.READY_PANEL, arm::hasPanel);
+    { // Panel states. These work the same with any number of balls
+      final int panelIdle = State.panelAction(PanelAction.NONE);
+      final int intakingPanel = State.panelAction(PanelAction.INTAKE);
+      final int scoringLow = State.panelAction(PanelAction.SCORE_LOW);
+      final int scoringHigh = State.panelAction(PanelAction.SCORE_HIGH);
 
       bindTransition(
-          State.READY_PANEL, State.SCORE_PANEL_HIGH, scorePanelHighReq.and(atExtensionTrigger));
+          PANEL_EDGE_MASK, ballIdle | panelIdle, ballIdle | intakingPanel, intakePanelReq);
 
       bindTransition(
-          State.READY_PANEL, State.SCORE_PANEL_LOW, scorePanelLowReq.and(atExtensionTrigger));
-
-      bindTransition(State.SCORE_PANEL_HIGH, State.IDLE, () -> !arm.hasPanel());
+          PANEL_EDGE_MASK,
+          ballIdle | intakingPanel,
+          State.HAS_PANEL | ballIdle | panelIdle,
+          arm::hasPanel);
 
-      bindTransition(State.SCORE_PANEL_LOW, State.IDLE, () -> !arm.hasPanel());
-    }
+      // Scoring clears the panel bit, it's on its way out
+      bindTransition(
+          PANEL_EDGE_MASK,
+          State.HAS_PANEL | ballIdle | panelIdle,
+          ballIdle | scoringHigh,
+          scorePanelHighReq.and(atExtensionTrigger));
 
-    { // Panel states with balls
+      bindTransition(
+          PANEL_EDGE_MASK,
+          State.HAS_PANEL | ballIdle | panelIdle,
+          ballIdle | scoringLow,
+          scorePanelLowReq.and(atExtensionTrigger));
 
-      // ---- WITH 1 BALL ----
+      bindTransition(
+          PANEL_EDGE_MASK, ballIdle | scoringHigh, ballIdle | panelIdle, () -> !arm.hasPanel());
 
-      bindTransition(State.READY_BALL_1, State.INTAKE_PANEL_WITH_BALL_1, intakePanelReq);
+      bindTransition(
+          PANEL_EDGE_MASK, ballIdle | scoringLow, ballIdle | panelIdle, () -> !arm.hasPanel());
+    }
+  }
 
-      bindTransition(State.INTAKE_PANEL_WITH_BALL_1, State.READY_BALL_1_WITH_PANEL, arm::hasPanel);
+  // Don't need an overload because Triggers are BooleanSuppliers
+  private void bindTransition(int mask, int from, int to, BooleanSupplier trigger) {
+    pendingTransitions.add(new Transition(pendingTransitions.size(), mask, from, to, trigger));
+  }
 
-      bindTransition(
-          State.READY_BALL_1_WITH_PANEL,
-          State.SCORE_PANEL_HIGH_WITH_BALL_1,
-          scorePanelHighReq.and(atExtensionTrigger));
+  // Works out which edges leave each packed state so the loop only looks at those
+  private void compileTransitions() {
+    transitionTable = new Transition[State.COUNT][];
+    List<Transition> outgoing = new ArrayList<>();
+    for (int from = 0; from < State.COUNT; from++) {
+      outgoing.clear();
+      for (Transition transition : pendingTransitions) {
+        if (transition.matches(from)) {
+          outgoing.add(transition);
+        }
+      }
+      transitionTable[from] = outgoing.toArray(new Transition[0]);
+    }
+    transitions = pendingTransitions.toArray(new Transition[0]);
+    pendingTransitions.clear();
+  }
 
-      bindTransition(
-          State.READY_BALL_1_WITH_PANEL,
-          State.SCORE_PANEL_LOW_WITH_BALL_1,
-          scorePanelLowReq.and(atExtensionTrigger));
+  private void evaluateTransitions() {
+    long start = System.nanoTime();
+    takeTransition();
+    transitionLog.drain();
+    transitionsSection.record(System.nanoTime() - start);
+  }
 
-      bindTransition(State.SCORE_PANEL_HIGH_WITH_BALL_1, State.READY_BALL_1, () -> !arm.hasPanel());
+  // First edge (in bind order) whose guard is true wins
+  void takeTransition() {
+    for (Transition transition : transitionTable[state]) {
+      if (transition.guard().getAsBoolean()) {
+        changeStateTo(transition.apply(state), transition.id());
+        break;
+      }
+    }
+  }
 
-      bindTransition(State.SCORE_PANEL_LOW_WITH_BALL_1, State.READY_BALL_1, () -> !arm.hasPanel());
+  // Every edge in bind order, so the benchmark can time the table against per edge triggers
+  Transition[] getTransitions() {
+    return transitions;
+  }
 
-      // ---- WITH 2 BALLS ----
+  // Changes the state right away instead of scheduling a command to do it
+  private void changeStateTo(int newState, int guardId) {
+    // No printing here, stdout can stall the loop on the rio
+    transitionLog.record(state, newState, RobotController.getFPGATime(), guardId);
+    this.prevState = this.state;
+    this.state = newState;
+  }
 
-      bindTransition(State.READY_BALL_2, State.INTAKE_PANEL_WITH_BALL_2, intakePanelReq);
+  public int getState() {
+    return state;
+  }
 
-      bindTransition(State.INTAKE_PANEL_WITH_BALL_2, State.READY_BALL_2_WITH_PANEL, arm::hasPanel);
+  public ArmState getArmState() {
+    return State.getArmState(state);
+  }
 
-      bindTransition(
-          State.READY_BALL_2_WITH_PANEL,
-          State.SCORE_PANEL_HIGH_WITH_BALL_2,
-          scorePanelHighReq.and(atExtensionTrigger));
+  public ElevatorState getElevatorState() {
+    return State.getElevatorState(state);
+  }
 
-      bindTransition(
-          State.READY_BALL_2_WITH_PANEL,
-          State.SCORE_PANEL_LOW_WITH_BALL_2,
-          scorePanelLowReq.and(atExtensionTrigger));
+  public IntakeState getIntakeState() {
+    return State.getIntakeState(state);
+  }
 
-      bindTransition(State.SCORE_PANEL_HIGH_WITH_BALL_2, State.READY_BALL_2, () -> !arm.hasPanel());
+  public RoutingState getRoutingState() {
+    return State.getRoutingState(state);
+  }
 
-      bindTransition(State.SCORE_PANEL_LOW_WITH_BALL_2, State.READY_BALL_2, () -> !arm.hasPanel());
-    }
+  @AutoLogOutput(key = "Superstructure/Num Balls")
+  public int getNumBalls() {
+    return State.getNumBalls(state);
   }
 
-  // Don't need an overload because Triggers are BooleanSuppliers
-  private void bindTransition(State from, State to, BooleanSupplier trigger) {
-    // When the state is the state we're transitioning from, and the trigger is true, change the
-    // state
-    new Trigger(() -> state.equals(from)).and(trigger).onTrue(changeStateTo(to));
+  @AutoLogOutput(key = "Superstructure/Has Panel")
+  public boolean hasPanel() {
+    return State.hasPanel(state);
   }
 
-  private Command changeStateTo(State newState) {
-    return Commands.runOnce(
-        () -> {
-          System.out.println(
-              "Changing state from " + state.toString() + " to " + newState.toString());
-          this.prevState = this.state;
-          this.state = newState;
-        });
+  @AutoLogOutput(key = "Superstructure/Ball Action")
+  public BallAction getBallAction() {
+    return State.getBallAction(state);
   }
 
-  public State getState() {
-    return state;
+  @AutoLogOutput(key = "Superstructure/Panel Action")
+  public PanelAction getPanelAction() {
+    return State.getPanelAction(state);
   }
 }
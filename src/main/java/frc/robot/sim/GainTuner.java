@@ -0,0 +1,448 @@
+package frc.robot.sim;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.controller.ArmFeedforward;
+import edu.wpi.first.math.controller.ElevatorFeedforward;
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.controller.ProfiledPIDController;
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.trajectory.TrapezoidProfile.Constraints;
+import edu.wpi.first.math.util.Units;
+import frc.robot.subsystems.ArmSubsystem;
+import frc.robot.subsystems.IntakeSubsystem;
+import frc.robot.subsystems.RoutingSubsystem;
+import frc.robot.subsystems.ShooterSubsystem;
+import frc.robot.subsystems.elevator.ElevatorIO.ElevatorIOInputs;
+import frc.robot.subsystems.elevator.ElevatorIOSim;
+import frc.robot.subsystems.pivot.PivotIO.PivotIOInputs;
+import frc.robot.subsystems.pivot.PivotIOSim;
+import frc.robot.subsystems.roller.RollerIO;
+import frc.robot.subsystems.roller.RollerIO.RollerIOInputs;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+/**
+ * Searches for gains that settle each sim mechanism as fast as it can without overshooting too
+ * much, and writes them out as a table. Every try is a step response on a fresh sim IO that's
+ * pulled out of the {@link SimWorld} and substepped on its own, so tries don't share any state and
+ * run side by side on a fork join pool
+ *
+ * <p>Only the feedback gains get searched. The pivots' and elevator's feedforward is worked out
+ * from their plants and their profile constraints are the fastest the motors can follow, and both
+ * stay fixed. Searching those too would just find whatever makes the step fastest in sim, which
+ * isn't what they mean on the robot. The rollers have no profile, so their kV is searched along
+ * with kP
+ *
+ * <p>The search is a pattern search. Each round tries every gain doubled and halved from the best
+ * so far, all at once, and moves to whichever did best. When none do better the step shrinks,
+ * until it's too small to matter. The tuned gains are only as good as the plants, which are still
+ * mostly placeholders, so they're a starting point for the robot and not a replacement for tuning
+ * on it
+ *
+ * <p>Run with ./gradlew tuneGains. Takes --threads for how many cores to use, --overshoot for the
+ * most overshoot allowed as a fraction of the step (0.05 by default) and --out for the CSV to
+ * write (gains.csv by default)
+ */
+public final class GainTuner {
+  private static final double HORIZON_SECONDS = 2.0;
+  private static final double POSITION_TOLERANCE_RADIANS = Units.degreesToRadians(1.0);
+  private static final double POSITION_TOLERANCE_METERS = 0.01;
+  // As a fraction of the setpoint
+  private static final double VELOCITY_TOLERANCE = 0.02;
+
+  private static final double START_FACTOR = 2.0;
+  private static final double MIN_FACTOR = 1.02;
+  private static final int MAX_ROUNDS = 60;
+
+  // How much of the battery a profile gets to use. The rest is left for the PID to correct with
+  private static final double PROFILE_VOLTS = 0.8 * 12.0;
+  // How much of that (after holding up against gravity) goes to cruising, the rest accelerates
+  private static final double CRUISE_FRACTION = 0.75;
+
+  /**
+   * A gain to search over
+   *
+   * @param name what to call it in the table
+   * @param start where the search starts
+   * @param seed what it jumps to the first time it's raised, if it starts at zero
+   */
+  private record Gain(String name, double start, double seed) {}
+
+  /**
+   * How a step response went
+   *
+   * @param settled whether it ended within tolerance of the setpoint
+   * @param settleSeconds when it last came into tolerance, or the horizon if it never settled
+   * @param overshoot how far it went past the setpoint, as a fraction of the step
+   * @param finalError how far off it ended, as a fraction of the step
+   */
+  private record Response(
+      boolean settled, double settleSeconds, double overshoot, double finalError) {
+    static final Response UNSTABLE =
+        new Response(false, HORIZON_SECONDS, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+  }
+
+  /**
+   * A mechanism to tune
+   *
+   * @param name what to call it in the table
+   * @param gains the gains to search over
+   * @param fixed the gains that aren't searched, to print alongside the tuned ones
+   * @param stepResponse runs a step response with the gains, in the same order
+   */
+  private record Tunable(
+      String name, List<Gain> gains, String fixed, Function<double[], Response> stepResponse) {}
+
+  private record Result(Tunable tunable, double[] gains, Response response, int tries) {}
+
+  private record Try(double[] gains, Response response, double cost) {}
+
+  private GainTuner() {}
+
+  public static void main(String... args) throws IOException, InterruptedException {
+    int threads = Runtime.getRuntime().availableProcessors();
+    double overshootLimit = 0.05;
+    Path out = Path.of("gains.csv");
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--threads" -> threads = Integer.parseInt(args[++i]);
+        case "--overshoot" -> overshootLimit = Double.parseDouble(args[++i]);
+        case "--out" -> out = Path.of(args[++i]);
+        default -> {
+          System.err.println("Usage: GainTuner [--threads n] [--overshoot fraction] [--out file]");
+          System.exit(2);
+        }
+      }
+    }
+    if (!HAL.initialize(500, 0)) {
+      throw new IllegalStateException("Couldn't initialize the HAL");
+    }
+
+    // The shooter pivot isn't here since its sim can't move yet, its min and max angle are both 0
+    List<Tunable> tunables =
+        List.of(
+            pivot("Arm/Pivot", ArmSubsystem::createSimPivotIO, -1.8, -0.3, 20.0),
+            pivot("Intake/Pivot", IntakeSubsystem::createSimPivotIO, 0.2, 1.4, 20.0),
+            elevator(),
+            roller("Arm/Rollers", ArmSubsystem::createSimRollerIO, 15.0),
+            roller("Intake/Rollers", IntakeSubsystem::createSimRollerIO, 12.0),
+            roller("Routing/Rollers", RoutingSubsystem::createSimRollerIO, 12.0),
+            roller("Shooter/Flywheel", ShooterSubsystem::createSimRollerIO, 40.0));
+
+    long start = System.nanoTime();
+    double limit = overshootLimit;
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    List<Result> results;
+    try {
+      // The tries inside each search are parallel streams too, so they run in this pool and every
+      // mechanism's tries share the cores
+      results =
+          pool.submit(() -> tunables.parallelStream().map(t -> tune(t, limit)).toList()).get();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Tuning failed", e.getCause());
+    } finally {
+      pool.shutdown();
+    }
+    double wallSeconds = (System.nanoTime() - start) / 1e9;
+
+    int tries = 0;
+    System.out.printf(
+        Locale.ROOT,
+        "%-18s %10s %10s %6s  %s%n",
+        "Mechanism",
+        "Settle (s)",
+        "Overshoot",
+        "Tries",
+        "Gains");
+    try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(out))) {
+      writer.println("mechanism,settled,settle (s),overshoot,tries,gains");
+      for (Result result : results) {
+        tries += result.tries();
+        String settle =
+            result.response().settled()
+                ? String.format(Locale.ROOT, "%.3f", result.response().settleSeconds())
+                : "never";
+        String gains = formatGains(result);
+        System.out.printf(
+            Locale.ROOT,
+            "%-18s %10s %9.1f%% %6d  %s%n",
+            result.tunable().name(),
+            settle,
+            result.response().overshoot() * 100.0,
+            result.tries(),
+            gains);
+        writer.printf(
+            Locale.ROOT,
+            "%s,%b,%.3f,%.4f,%d,%s%n",
+            result.tunable().name(),
+            result.response().settled(),
+            result.response().settleSeconds(),
+            result.response().overshoot(),
+            result.tries(),
+            gains);
+      }
+    }
+    System.out.printf(
+        Locale.ROOT,
+        "%d step responses on %d threads in %.1f s, written to %s%n",
+        tries,
+        threads,
+        wallSeconds,
+        out);
+    System.exit(0);
+  }
+
+  private static Result tune(Tunable tunable, double overshootLimit) {
+    List<Gain> gainList = tunable.gains();
+    double[] startGains = new double[gainList.size()];
+    for (int i = 0; i < startGains.length; i++) {
+      startGains[i] = gainList.get(i).start();
+    }
+    Try best = tryGains(tunable, startGains, overshootLimit);
+    int tries = 1;
+
+    double factor = START_FACTOR;
+    for (int round = 0; round < MAX_ROUNDS && factor > MIN_FACTOR; round++) {
+      List<double[]> candidates = new ArrayList<>();
+      for (int i = 0; i < startGains.length; i++) {
+        double gain = best.gains()[i];
+        double[] raised = best.gains().clone();
+        raised[i] = gain == 0.0 ? gainList.get(i).seed() : gain * factor;
+        candidates.add(raised);
+        if (gain != 0.0) {
+          double[] lowered = best.gains().clone();
+          lowered[i] = gain / factor;
+          candidates.add(lowered);
+        }
+      }
+      tries += candidates.size();
+
+      // Ties go to the first candidate, so a run always searches the same way
+      Try bestCandidate =
+          candidates.parallelStream()
+              .map(gains -> tryGains(tunable, gains, overshootLimit))
+              .min(Comparator.comparingDouble(Try::cost))
+              .orElseThrow();
+      if (bestCandidate.cost() < best.cost()) {
+        best = bestCandidate;
+      } else {
+        factor = Math.sqrt(factor);
+      }
+    }
+    return new Result(tunable, best.gains(), best.response(), tries);
+  }
+
+  private static Try tryGains(Tunable tunable, double[] gains, double overshootLimit) {
+    Response response = tunable.stepResponse().apply(gains);
+    return new Try(gains, response, cost(response, overshootLimit));
+  }
+
+  // Settle time when it settles within the overshoot limit. Anything that doesn't is always worse,
+  // but still ranked by how close it got so the search has somewhere to go
+  private static double cost(Response response, double overshootLimit) {
+    if (!Double.isFinite(response.finalError())) return Double.POSITIVE_INFINITY;
+
+    double cost =
+        response.settled()
+            ? response.settleSeconds()
+            : HORIZON_SECONDS + Math.abs(response.finalError());
+    if (response.overshoot() > overshootLimit) {
+      cost += 2.0 * HORIZON_SECONDS + response.overshoot() - overshootLimit;
+    }
+    return cost;
+  }
+
+  /**
+   * Runs a step response, substep by substep
+   *
+   * @param io the sim IO, already reset to the start and given its setpoint
+   * @param measurement reads where it is now
+   * @param start where it started
+   * @param target the setpoint
+   * @param tolerance how close counts as there
+   * @return how it went
+   */
+  private static Response stepResponse(
+      SimWorld.Mechanism io,
+      DoubleSupplier measurement,
+      double start,
+      double target,
+      double tolerance) {
+    double span = Math.abs(target - start);
+    double direction = Math.signum(target - start);
+    long substeps = Math.round(HORIZON_SECONDS / SimWorld.SUBSTEP_SECONDS);
+
+    double settleSeconds = 0.0;
+    double overshoot = 0.0;
+    double error = target - start;
+    for (long i = 1; i <= substeps; i++) {
+      io.substep(SimWorld.SUBSTEP_SECONDS);
+      double measured = measurement.getAsDouble();
+      if (!Double.isFinite(measured)) return Response.UNSTABLE;
+
+      error = measured - target;
+      overshoot = Math.max(overshoot, error * direction / span);
+      if (Math.abs(error) > tolerance) {
+        settleSeconds = i * SimWorld.SUBSTEP_SECONDS;
+      }
+    }
+    boolean settled = Math.abs(error) <= tolerance;
+    return new Response(settled, settleSeconds, overshoot, error / span);
+  }
+
+  // The fastest trapezoid profile the feedforward can follow within PROFILE_VOLTS. At the end of
+  // accelerating it needs kG + kV * max vel + kA * max accel, which comes out to exactly that
+  private static Constraints limits(double kG, double kV, double kA) {
+    double available = PROFILE_VOLTS - kG;
+    return new Constraints(
+        CRUISE_FRACTION * available / kV, (1.0 - CRUISE_FRACTION) * available / kA);
+  }
+
+  private static String describe(double kG, double kV, double kA, Constraints constraints) {
+    return String.format(
+        Locale.ROOT,
+        "kG=%.4g kV=%.4g kA=%.4g max vel=%.4g max accel=%.4g",
+        kG,
+        kV,
+        kA,
+        constraints.maxVelocity,
+        constraints.maxAcceleration);
+  }
+
+  private static Tunable pivot(
+      String name,
+      BiFunction<ProfiledPIDController, ArmFeedforward, PivotIOSim> factory,
+      double startRadians,
+      double targetRadians,
+      double kP) {
+    // Made once just to read the plant off of
+    PivotIOSim plant =
+        factory.apply(
+            new ProfiledPIDController(0.0, 0.0, 0.0, new Constraints(0.0, 0.0)),
+            new ArmFeedforward(0.0, 0.0, 0.0));
+    SimWorld.remove(plant);
+    ArmFeedforward model = plant.getModelFeedforward();
+    double kG = model.getKg();
+    double kV = model.getKv();
+    double kA = model.getKa();
+    Constraints constraints = limits(kG, kV, kA);
+
+    List<Gain> gains = List.of(new Gain("kP", kP, 1.0), new Gain("kD", 0.0, 0.1));
+    return new Tunable(
+        name,
+        gains,
+        describe(kG, kV, kA, constraints),
+        g -> {
+          ProfiledPIDController pid =
+              new ProfiledPIDController(g[0], 0.0, g[1], constraints, SimWorld.SUBSTEP_SECONDS);
+          PivotIOSim io = factory.apply(pid, new ArmFeedforward(0.0, kG, kV, kA));
+          SimWorld.remove(io);
+          io.resetEncoder(Rotation2d.fromRadians(startRadians));
+          pid.reset(startRadians);
+          io.setPositionSetpoint(Rotation2d.fromRadians(targetRadians));
+
+          PivotIOInputs inputs = new PivotIOInputs();
+          return stepResponse(
+              io,
+              () -> {
+                io.updateInputs(inputs);
+                return Units.rotationsToRadians(inputs.positionRotations);
+              },
+              startRadians,
+              targetRadians,
+              POSITION_TOLERANCE_RADIANS);
+        });
+  }
+
+  private static Tunable elevator() {
+    double startMeters = 0.1;
+    double targetMeters = 0.6;
+    ElevatorFeedforward model = ElevatorIOSim.getModelFeedforward();
+    double kG = model.getKg();
+    double kV = model.getKv();
+    double kA = model.getKa();
+    Constraints constraints = limits(kG, kV, kA);
+
+    List<Gain> gains = List.of(new Gain("kP", 40.0, 1.0), new Gain("kD", 0.0, 0.1));
+    return new Tunable(
+        "Elevator",
+        gains,
+        describe(kG, kV, kA, constraints),
+        g -> {
+          ProfiledPIDController pid =
+              new ProfiledPIDController(g[0], 0.0, g[1], constraints, SimWorld.SUBSTEP_SECONDS);
+          ElevatorIOSim io = new ElevatorIOSim(pid, new ElevatorFeedforward(0.0, kG, kV, kA));
+          SimWorld.remove(io);
+          io.setEncoderPosition(startMeters);
+          pid.reset(startMeters);
+          io.setPositionSetpoint(targetMeters);
+
+          ElevatorIOInputs inputs = new ElevatorIOInputs();
+          return stepResponse(
+              io,
+              () -> {
+                io.updateInputs(inputs);
+                return inputs.leaderPositionMeters;
+              },
+              startMeters,
+              targetMeters,
+              POSITION_TOLERANCE_METERS);
+        });
+  }
+
+  // From rest up to speed. Only the velocity loop, nothing runs the rollers to a position yet
+  private static <T extends RollerIO & SimWorld.Mechanism> Tunable roller(
+      String name,
+      BiFunction<SimpleMotorFeedforward, PIDController, T> factory,
+      double targetRotationsPerSecond) {
+    List<Gain> gains = List.of(new Gain("kP", 0.0, 0.05), new Gain("kV", 0.0, 0.1));
+    return new Tunable(
+        name,
+        gains,
+        "",
+        g -> {
+          T io =
+              factory.apply(
+                  new SimpleMotorFeedforward(0.0, g[1]),
+                  new PIDController(g[0], 0.0, 0.0, SimWorld.SUBSTEP_SECONDS));
+          SimWorld.remove(io);
+          io.setVelocitySetpoint(targetRotationsPerSecond);
+
+          RollerIOInputs inputs = new RollerIOInputs();
+          return stepResponse(
+              io,
+              () -> {
+                io.updateInputs(inputs);
+                return inputs.velocityRotationsPerSecond;
+              },
+              0.0,
+              targetRotationsPerSecond,
+              targetRotationsPerSecond * VELOCITY_TOLERANCE);
+        });
+  }
+
+  private static String formatGains(Result result) {
+    List<String> parts = new ArrayList<>();
+    for (int i = 0; i < result.gains().length; i++) {
+      parts.add(
+          String.format(
+              Locale.ROOT, "%s=%.4g", result.tunable().gains().get(i).name(), result.gains()[i]));
+    }
+    if (!result.tunable().fixed().isEmpty()) {
+      parts.add("(fixed " + result.tunable().fixed() + ")");
+    }
+    return String.join(" ", parts);
+  }
+}
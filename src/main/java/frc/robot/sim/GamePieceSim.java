@@ -0,0 +1,269 @@
+package frc.robot.sim;
+
+import edu.wpi.first.math.util.Units;
+import frc.robot.subsystems.canrange.CANRangeIOSim;
+import frc.robot.subsystems.colorsensor.BallColorClassifier;
+import frc.robot.subsystems.colorsensor.BallColorClassifier.BallColor;
+import frc.robot.subsystems.colorsensor.ColorSensorIOSim;
+import frc.robot.subsystems.roller.RollerIOSim;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves balls along the intake, routing and shooter path and panels in and out of the arm, and
+ * drives the CANrange and color sensor sims from where they are. Balls ride at the surface speed of
+ * whichever rollers they're on, so they only move when the sim rollers actually spin
+ *
+ * <p>The path is one dimension, in meters from the intake's mouth. Balls can't pass each other and
+ * leave either off the end (shot) or back out the front (rejected). A held panel stalls the arm's
+ * rollers so their current goes up the way it does on the robot
+ */
+public class GamePieceSim implements SimWorld.Mechanism {
+  // 13 inch cargo
+  public static final double BALL_DIAMETER_METERS = Units.inchesToMeters(13.0);
+  private static final double BALL_RADIUS_METERS = BALL_DIAMETER_METERS / 2.0;
+
+  // Where things are along the path. Rough numbers, not from CAD
+  private static final double INTAKE_SENSOR_METERS = 0.30;
+  private static final double ROUTING_START_METERS = 0.35;
+  private static final double SHOOTER_INDEX_START_METERS = 0.90;
+  private static final double ROUTING_SENSOR_METERS = 0.95;
+  private static final double EXIT_METERS = 1.20;
+
+  private static final double ROLLER_CIRCUMFERENCE_METERS = Math.PI * Units.inchesToMeters(2.0);
+
+  // From the CANranges to where a ball passes closest
+  private static final double SENSOR_GAP_METERS = 0.02;
+  // Proximity the color sensor reads with a ball right in front of it and at its edge. Kept above
+  // BallColorClassifier.MIN_PROXIMITY so the color shows up as soon as the CANrange sees the ball
+  private static final int MAX_PROXIMITY = 800;
+  private static final int EDGE_PROXIMITY = 300;
+
+  // How long the arm has to pull in or push out before a panel is in or out
+  private static final double PANEL_GRAB_VOLTS = 5.0;
+  private static final double PANEL_TRANSFER_SECONDS = 0.2;
+
+  private static final class Ball {
+    double positionMeters = 0.0;
+    // Still sitting at the mouth waiting for the intake
+    boolean waiting = true;
+    final BallColor color;
+
+    Ball(BallColor color) {
+      this.color = color;
+    }
+  }
+
+  private final RollerIOSim intakeRollers;
+  private final RollerIOSim routingRollers;
+  private final RollerIOSim shooterIndexRollers;
+  private final CANRangeIOSim intakeCANrange;
+  private final ColorSensorIOSim colorSensor;
+  private final CANRangeIOSim routingCANrange;
+  private final RollerIOSim armRollers;
+
+  // Front (closest to the shooter) first
+  private final List<Ball> balls = new ArrayList<>();
+  private long ballsShot = 0;
+  private long ballsRejected = 0;
+
+  private boolean panelOffered = false;
+  private boolean panelHeld = false;
+  private double panelTransferSeconds = 0.0;
+  private long panelsIntaked = 0;
+  private long panelsScored = 0;
+
+  /**
+   * Creates the game piece sim and adds it to the {@link SimWorld}. Make it after the sim IO so it
+   * sees this substep's roller speeds
+   *
+   * @param intakeRollers the rollers that pull balls in
+   * @param routingRollers the rollers from the intake up to the shooter indexing rollers
+   * @param shooterIndexRollers the rollers that feed the shooter
+   * @param intakeCANrange the CANrange in the intake
+   * @param colorSensor the color sensor next to it
+   * @param routingCANrange the CANrange at the end of the routing
+   * @param armRollers the rollers that hold panels
+   */
+  public GamePieceSim(
+      RollerIOSim intakeRollers,
+      RollerIOSim routingRollers,
+      RollerIOSim shooterIndexRollers,
+      CANRangeIOSim intakeCANrange,
+      ColorSensorIOSim colorSensor,
+      CANRangeIOSim routingCANrange,
+      RollerIOSim armRollers) {
+    this.intakeRollers = intakeRollers;
+    this.routingRollers = routingRollers;
+    this.shooterIndexRollers = shooterIndexRollers;
+    this.intakeCANrange = intakeCANrange;
+    this.colorSensor = colorSensor;
+    this.routingCANrange = routingCANrange;
+    this.armRollers = armRollers;
+    SimWorld.add(this);
+  }
+
+  /**
+   * Puts a ball at the intake's mouth. It goes in once the intake rollers pull it
+   *
+   * @param color the ball's color
+   * @return false if there's already a ball there
+   */
+  public boolean addBall(BallColor color) {
+    if (!balls.isEmpty() && balls.get(balls.size() - 1).positionMeters < BALL_DIAMETER_METERS) {
+      return false;
+    }
+    balls.add(new Ball(color));
+    return true;
+  }
+
+  /** Holds a panel up to the arm. It goes in once the arm's rollers pull it */
+  public void offerPanel() {
+    panelOffered = true;
+  }
+
+  @Override
+  public void substep(double dtSeconds) {
+    moveBalls(dtSeconds);
+    movePanel(dtSeconds);
+    updateSensors();
+  }
+
+  private void moveBalls(double dtSeconds) {
+    // Front to back, so each ball can be stopped by the one ahead of it
+    double aheadMeters = Double.POSITIVE_INFINITY;
+    for (int i = 0; i < balls.size(); i++) {
+      Ball ball = balls.get(i);
+      double speed = surfaceSpeed(ball.positionMeters);
+      // Balls at the mouth only move once the intake pulls them in
+      if (ball.waiting && speed <= 0.0) continue;
+
+      ball.waiting = false;
+      ball.positionMeters =
+          Math.min(ball.positionMeters + speed * dtSeconds, aheadMeters - BALL_DIAMETER_METERS);
+      aheadMeters = ball.positionMeters;
+    }
+
+    // Only the front ball can leave off the end
+    if (!balls.isEmpty() && balls.get(0).positionMeters > EXIT_METERS) {
+      balls.remove(0);
+      ballsShot++;
+    }
+    for (int i = balls.size() - 1; i >= 0; i--) {
+      if (balls.get(i).positionMeters < -BALL_RADIUS_METERS) {
+        balls.remove(i);
+        ballsRejected++;
+      }
+    }
+  }
+
+  private double surfaceSpeed(double positionMeters) {
+    RollerIOSim rollers;
+    if (positionMeters < ROUTING_START_METERS) {
+      rollers = intakeRollers;
+    } else if (positionMeters < SHOOTER_INDEX_START_METERS) {
+      rollers = routingRollers;
+    } else {
+      rollers = shooterIndexRollers;
+    }
+    return rollers.getVelocityRotationsPerSecond() * ROLLER_CIRCUMFERENCE_METERS;
+  }
+
+  private void movePanel(double dtSeconds) {
+    double armVolts = armRollers.getAppliedVoltage();
+    boolean transferring =
+        panelHeld ? armVolts < 0.0 : panelOffered && armVolts > PANEL_GRAB_VOLTS;
+    panelTransferSeconds = transferring ? panelTransferSeconds + dtSeconds : 0.0;
+    if (panelTransferSeconds < PANEL_TRANSFER_SECONDS) return;
+
+    panelTransferSeconds = 0.0;
+    if (panelHeld) {
+      panelHeld = false;
+      panelsScored++;
+    } else {
+      panelHeld = true;
+      panelOffered = false;
+      panelsIntaked++;
+    }
+    armRollers.setStalled(panelHeld);
+  }
+
+  private void updateSensors() {
+    Ball atIntake = closestBall(INTAKE_SENSOR_METERS);
+    double intakeOffset = offset(atIntake, INTAKE_SENSOR_METERS);
+    setCANrange(intakeCANrange, intakeOffset);
+
+    if (Math.abs(intakeOffset) < BALL_RADIUS_METERS) {
+      // Reads exactly what the classifier is calibrated to
+      double[] rgb =
+          atIntake.color == BallColor.BLUE
+              ? BallColorClassifier.BLUE_BALL
+              : BallColorClassifier.RED_BALL;
+      double centered = 1.0 - Math.abs(intakeOffset) / BALL_RADIUS_METERS;
+      int proximity = (int) (EDGE_PROXIMITY + (MAX_PROXIMITY - EDGE_PROXIMITY) * centered);
+      colorSensor.set(rgb[0], rgb[1], rgb[2], proximity);
+    } else {
+      colorSensor.clear();
+    }
+
+    setCANrange(
+        routingCANrange, offset(closestBall(ROUTING_SENSOR_METERS), ROUTING_SENSOR_METERS));
+  }
+
+  private static double offset(Ball ball, double positionMeters) {
+    return ball == null ? Double.POSITIVE_INFINITY : ball.positionMeters - positionMeters;
+  }
+
+  private Ball closestBall(double positionMeters) {
+    Ball closest = null;
+    for (Ball ball : balls) {
+      if (closest == null
+          || Math.abs(ball.positionMeters - positionMeters)
+              < Math.abs(closest.positionMeters - positionMeters)) {
+        closest = ball;
+      }
+    }
+    return closest;
+  }
+
+  // The beam hits the ball's curved side, so it reads farther the more off center the ball is
+  private static void setCANrange(CANRangeIOSim canrange, double offsetMeters) {
+    if (Math.abs(offsetMeters) < BALL_RADIUS_METERS) {
+      canrange.setDistance(
+          SENSOR_GAP_METERS
+              + BALL_RADIUS_METERS
+              - Math.sqrt(
+                  BALL_RADIUS_METERS * BALL_RADIUS_METERS - offsetMeters * offsetMeters));
+    } else {
+      canrange.clear();
+    }
+  }
+
+  public int getBallsInRobot() {
+    int inRobot = 0;
+    for (Ball ball : balls) {
+      if (!ball.waiting) inRobot++;
+    }
+    return inRobot;
+  }
+
+  public long getBallsShot() {
+    return ballsShot;
+  }
+
+  public long getBallsRejected() {
+    return ballsRejected;
+  }
+
+  public boolean hasPanel() {
+    return panelHeld;
+  }
+
+  public long getPanelsIntaked() {
+    return panelsIntaked;
+  }
+
+  public long getPanelsScored() {
+    return panelsScored;
+  }
+}
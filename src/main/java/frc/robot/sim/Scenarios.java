@@ -0,0 +1,240 @@
+package frc.robot.sim;
+
+import frc.robot.Superstructure.BallAction;
+import frc.robot.subsystems.colorsensor.BallColorClassifier.BallColor;
+import java.util.Locale;
+import java.util.Random;
+
+/** Scripted scenarios for {@link SimHarness}, plus a main that times one */
+public final class Scenarios {
+  public static final double CYCLE_SECONDS = 6.0;
+  public static final double MATCH_SECONDS = 150.0;
+
+  /** What happened over a match */
+  public static final class MatchResult {
+    // Balls that actually left the robot, not just times it went into SHOOT
+    public long shots = 0;
+    public long rejects = 0;
+    public double seconds = 0.0;
+    // From starting to intake to starting to shoot
+    public double totalCycleSeconds = 0.0;
+    public long cycles = 0;
+
+    public double meanCycleSeconds() {
+      return cycles == 0 ? Double.NaN : totalCycleSeconds / cycles;
+    }
+
+    public double ballsPerMinute() {
+      return seconds == 0.0 ? 0.0 : shots * 60.0 / seconds;
+    }
+  }
+
+  // Keeps the robot fed and shoots every time it has 2 balls, reacting to what it does
+  private static final class GreedyDriver implements Runnable {
+    private final SimHarness sim;
+    private final double reactionSeconds;
+    private final Random random;
+
+    private boolean intakeHeld = false;
+    private boolean shootHeld = false;
+    // Waiting out a reaction time
+    private boolean reacting = false;
+
+    GreedyDriver(SimHarness sim, double reactionSeconds, Random random) {
+      this.sim = sim;
+      this.reactionSeconds = reactionSeconds;
+      this.random = random;
+    }
+
+    @Override
+    public void run() {
+      // Someone's always ready with another ball, but only one at a time
+      if (intakeHeld && sim.pieces.getBallsInRobot() <= sim.superstructure.getNumBalls()) {
+        sim.pieces.addBall(BallColor.RED);
+      }
+      if (reacting) return;
+
+      BallAction action = sim.superstructure.getBallAction();
+      if (intakeHeld) {
+        if (sim.intake.getBeambreakIsDetected()) {
+          react(
+              () -> {
+                sim.driver.setLeftTriggerAxis(0.0);
+                intakeHeld = false;
+              });
+        }
+      } else if (shootHeld) {
+        if (action == BallAction.SHOOT) {
+          react(
+              () -> {
+                sim.driver.setRightTriggerAxis(0.0);
+                shootHeld = false;
+              });
+        }
+      } else if (action == BallAction.NONE) {
+        if (sim.superstructure.getNumBalls() < 2) {
+          react(
+              () -> {
+                sim.driver.setLeftTriggerAxis(1.0);
+                intakeHeld = true;
+              });
+        } else {
+          react(
+              () -> {
+                sim.driver.setRightTriggerAxis(1.0);
+                shootHeld = true;
+              });
+        }
+      }
+    }
+
+    private void react(Runnable action) {
+      reacting = true;
+      sim.after(
+          reaction(reactionSeconds, random),
+          () -> {
+            action.run();
+            reacting = false;
+          });
+    }
+  }
+
+  private Scenarios() {}
+
+  /**
+   * Scripts intake, index and shoot cycles with one red ball each, driving the controllers the way
+   * a driver would on a fixed schedule. The driver always reacts in 0.2 seconds
+   *
+   * @param sim the harness to script
+   * @param startSeconds when the first cycle starts
+   * @param cycles how many cycles
+   */
+  public static void ballCycles(SimHarness sim, double startSeconds, int cycles) {
+    ballCycles(sim, startSeconds, cycles, 0.2, null);
+  }
+
+  /**
+   * Scripts intake, index and shoot cycles with one red ball each, driving the controllers the way
+   * a driver would on a fixed schedule
+   *
+   * @param sim the harness to script
+   * @param startSeconds when the first cycle starts
+   * @param cycles how many cycles
+   * @param reactionSeconds how long the driver takes to let go of intake once a ball is in, and to
+   *     shoot once it's indexed
+   * @param random varies each reaction between half and one and a half times reactionSeconds, or
+   *     null to always take exactly reactionSeconds
+   */
+  public static void ballCycles(
+      SimHarness sim, double startSeconds, int cycles, double reactionSeconds, Random random) {
+    for (int i = 0; i < cycles; i++) {
+      double t = startSeconds + i * CYCLE_SECONDS;
+      double releaseIntake = t + 1.0 + reaction(reactionSeconds, random);
+      double shoot = t + 3.0 + reaction(reactionSeconds, random);
+
+      sim.at(
+          t,
+          () -> {
+            sim.pieces.addBall(BallColor.RED);
+            sim.driver.setLeftTriggerAxis(1.0);
+          });
+      sim.at(releaseIntake, () -> sim.driver.setLeftTriggerAxis(0.0));
+      sim.at(shoot, () -> sim.driver.setRightTriggerAxis(1.0));
+      sim.at(shoot + 0.7, () -> sim.driver.setRightTriggerAxis(0.0));
+    }
+  }
+
+  /**
+   * Drives like someone trying to score as many balls as possible. Holds intake until a ball is in,
+   * shoots whenever there are 2, and keeps a red ball at the intake's mouth while intaking. Shows
+   * how fast the state machine can cycle
+   *
+   * @param sim the harness to drive
+   * @param reactionSeconds how long the driver takes to react to anything
+   * @param random varies each reaction between half and one and a half times reactionSeconds, or
+   *     null to always take exactly reactionSeconds
+   */
+  public static void greedyDriver(SimHarness sim, double reactionSeconds, Random random) {
+    sim.everyLoop(new GreedyDriver(sim, reactionSeconds, random));
+  }
+
+  private static double reaction(double reactionSeconds, Random random) {
+    return random == null ? reactionSeconds : reactionSeconds * (0.5 + random.nextDouble());
+  }
+
+  /**
+   * Runs the harness until a match's worth of time has passed, watching what the superstructure
+   * does
+   *
+   * @param sim the harness, already scripted
+   * @param matchSeconds how long to run
+   * @return shots, rejects and cycle times
+   */
+  public static MatchResult playMatch(SimHarness sim, double matchSeconds) {
+    MatchResult result = new MatchResult();
+    double startSeconds = sim.getTimeSeconds();
+    long startShots = sim.pieces.getBallsShot();
+    long startRejects = sim.pieces.getBallsRejected();
+    BallAction lastAction = BallAction.NONE;
+    double cycleStart = -1.0;
+    while (sim.getTimeSeconds() < matchSeconds) {
+      sim.step();
+      BallAction action = sim.superstructure.getBallAction();
+      if (action != lastAction) {
+        if (action == BallAction.INTAKE && cycleStart < 0.0) {
+          cycleStart = sim.getTimeSeconds();
+        } else if (action == BallAction.SHOOT) {
+          if (cycleStart >= 0.0) {
+            result.totalCycleSeconds += sim.getTimeSeconds() - cycleStart;
+            result.cycles++;
+            cycleStart = -1.0;
+          }
+        }
+      }
+      lastAction = action;
+    }
+    result.shots = sim.pieces.getBallsShot() - startShots;
+    result.rejects = sim.pieces.getBallsRejected() - startRejects;
+    result.seconds = sim.getTimeSeconds() - startSeconds;
+    return result;
+  }
+
+  /**
+   * Runs a match with the greedy driver and prints the robot's throughput, how much faster than
+   * real time it went, and how long the physics took
+   */
+  public static void main(String... args) {
+    try (SimHarness sim = new SimHarness()) {
+      sim.enable();
+      greedyDriver(sim, 0.2, null);
+
+      long start = System.nanoTime();
+      MatchResult result = playMatch(sim, MATCH_SECONDS);
+      double wallSeconds = (System.nanoTime() - start) / 1e9;
+
+      System.out.printf(
+          Locale.ROOT,
+          "%d loops, %.0f s of match in %.2f s (%.0fx real time)%n",
+          sim.getLoopCount(),
+          sim.getTimeSeconds(),
+          wallSeconds,
+          sim.getTimeSeconds() / wallSeconds);
+      System.out.printf(
+          Locale.ROOT,
+          "%d shots (%.1f balls a minute), %d rejects, %.2f s mean cycle%n",
+          result.shots,
+          result.ballsPerMinute(),
+          result.rejects,
+          result.meanCycleSeconds());
+      System.out.printf(
+          Locale.ROOT,
+          "Physics at %.0f Hz took %.3f ms mean, %.3f ms max a step, %d over the %.1f ms budget%n",
+          1.0 / SimWorld.SUBSTEP_SECONDS,
+          SimWorld.getMeanStepMS(),
+          SimWorld.getMaxStepMS(),
+          SimWorld.getOverruns(),
+          SimWorld.STEP_BUDGET_MS);
+    }
+    System.exit(0);
+  }
+}
@@ -0,0 +1,275 @@
+package frc.robot.sim;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj.simulation.XboxControllerSim;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.Superstructure;
+import frc.robot.subsystems.ArmSubsystem;
+import frc.robot.subsystems.IntakeSubsystem;
+import frc.robot.subsystems.RoutingSubsystem;
+import frc.robot.subsystems.elevator.ElevatorIOSim;
+import frc.robot.subsystems.elevator.ElevatorSubsystem;
+import frc.robot.util.CommandXboxControllerSubsystem;
+import frc.robot.util.IOInputsPipeline;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs the subsystems, superstructure and scheduler headless on a virtual clock, as fast as the CPU
+ * can go. Time only moves when the harness steps it, so a whole match takes about as long as the
+ * code takes to run 7500 loops. Controller inputs and game pieces are scripted, either right away,
+ * at a set time or in reaction to the robot. {@link GamePieceSim} moves the pieces and drives the
+ * sensors from there
+ *
+ * <p>The HAL, its clock and the scheduler are all static, so only one can exist per JVM at a time.
+ * Close it when done so the next one starts clean. To run many at once, run them in separate JVMs
+ * like {@link SimSweep} does. In a JUnit test:
+ *
+ * <pre>
+ * try (SimHarness sim = new SimHarness()) {
+ *   sim.enable();
+ *   sim.at(1.0, () -> sim.driver.setLeftTriggerAxis(1.0));
+ *   assertTrue(sim.runUntil(() -> sim.superstructure.getBallAction() == BallAction.INTAKE, 2.0));
+ * }
+ * </pre>
+ *
+ * <p>Nothing gets logged since the logger isn't started, which also keeps it fast
+ */
+public class SimHarness implements AutoCloseable {
+  public static final double LOOP_PERIOD_SECONDS = 0.02;
+
+  private static final class Event implements Comparable<Event> {
+    final double timeSeconds;
+    // Keeps events at the same time in the order they were added
+    final long order;
+    final Runnable action;
+
+    Event(double timeSeconds, long order, Runnable action) {
+      this.timeSeconds = timeSeconds;
+      this.order = order;
+      this.action = action;
+    }
+
+    @Override
+    public int compareTo(Event other) {
+      int byTime = Double.compare(timeSeconds, other.timeSeconds);
+      return byTime != 0 ? byTime : Long.compare(order, other.order);
+    }
+  }
+
+  public final ArmSubsystem arm;
+  public final ElevatorSubsystem elevator;
+  public final RoutingSubsystem routing;
+  public final IntakeSubsystem intake;
+  public final Superstructure superstructure;
+  // Balls and panels moving through the robot, driving the sensor sims
+  public final GamePieceSim pieces;
+
+  // Scripted controller inputs
+  public final XboxControllerSim driver = new XboxControllerSim(0);
+  public final XboxControllerSim operator = new XboxControllerSim(1);
+
+  // No worker threads, so a loop is the same every time and there's nothing to hand off
+  private final IOInputsPipeline inputsPipeline = new IOInputsPipeline(0);
+  private final PriorityQueue<Event> events = new PriorityQueue<>();
+  private long eventCount = 0;
+  private final List<Runnable> loopCallbacks = new ArrayList<>();
+
+  private final double startTimeSeconds;
+  private long loopCount = 0;
+
+  public SimHarness() {
+    if (!HAL.initialize(500, 0)) {
+      throw new IllegalStateException("Couldn't initialize the HAL");
+    }
+    SimHooks.pauseTiming();
+    startTimeSeconds = Timer.getFPGATimestamp();
+
+    DriverStationSim.resetData();
+    DriverStationSim.setDsAttached(true);
+    DriverStationSim.setAllianceStationId(AllianceStationID.Red1);
+    DriverStationSim.setEnabled(false);
+    DriverStationSim.notifyNewData();
+    DriverStation.refreshData();
+    // Anything left from sim IO made before this harness
+    SimWorld.clear();
+
+    // Sim IO no matter what Robot.ROBOT_TYPE says
+    arm =
+        new ArmSubsystem(
+            inputsPipeline, ArmSubsystem.createSimRollerIO(), ArmSubsystem.createSimPivotIO());
+    elevator = new ElevatorSubsystem(inputsPipeline, new ElevatorIOSim());
+    routing =
+        new RoutingSubsystem(
+            inputsPipeline,
+            RoutingSubsystem.createSimRollerIO(),
+            RoutingSubsystem.createSimRollerIO(),
+            RoutingSubsystem.createSimCANRangeIO());
+    intake =
+        new IntakeSubsystem(
+            inputsPipeline,
+            IntakeSubsystem.createSimPivotIO(),
+            IntakeSubsystem.createSimRollerIO(),
+            IntakeSubsystem.createSimRollerIO(),
+            IntakeSubsystem.createSimCANRangeIO(),
+            IntakeSubsystem.createSimColorSensorIO());
+    pieces =
+        new GamePieceSim(
+            intake.getFourbarRollerSim(),
+            routing.getPrimaryRollerSim(),
+            routing.getShooterIndexRollerSim(),
+            intake.getCANrangeSim(),
+            intake.getColorSensorSim(),
+            routing.getCANrangeSim(),
+            arm.getRollerSim());
+    superstructure =
+        new Superstructure(
+            new CommandXboxControllerSubsystem(0),
+            new CommandXboxControllerSubsystem(1),
+            arm,
+            intake,
+            routing,
+            elevator);
+
+    // Same as Robot
+    arm.setDefaultCommand(arm.setStateAngleVoltage(superstructure::getArmState));
+    elevator.setDefaultCommand(elevator.setStateExtension(superstructure::getElevatorState));
+    intake.setDefaultCommand(intake.setStateVoltage(superstructure::getIntakeState));
+    routing.setDefaultCommand(routing.setStateVoltage(superstructure::getRoutingState));
+  }
+
+  /** Enables the robot in teleop, starting next loop */
+  public void enable() {
+    DriverStationSim.setAutonomous(false);
+    DriverStationSim.setEnabled(true);
+  }
+
+  /** Enables the robot in auto, starting next loop */
+  public void enableAuto() {
+    DriverStationSim.setAutonomous(true);
+    DriverStationSim.setEnabled(true);
+  }
+
+  /** Disables the robot, starting next loop */
+  public void disable() {
+    DriverStationSim.setEnabled(false);
+  }
+
+  /**
+   * Runs something at a set time, right before that loop's inputs are read. Use it to press
+   * buttons or set sensors mid run
+   *
+   * @param timeSeconds when to run it, in seconds since the harness was made
+   * @param action what to run
+   * @return this harness
+   */
+  public SimHarness at(double timeSeconds, Runnable action) {
+    events.add(new Event(timeSeconds, eventCount++, action));
+    return this;
+  }
+
+  /**
+   * Runs something a while after now
+   *
+   * @param delaySeconds how long from now
+   * @param action what to run
+   * @return this harness
+   */
+  public SimHarness after(double delaySeconds, Runnable action) {
+    return at(getTimeSeconds() + delaySeconds, action);
+  }
+
+  /**
+   * Runs something at the end of every loop, after the scheduler. Use it for a driver that reacts
+   * to what the robot does
+   *
+   * @param callback what to run
+   * @return this harness
+   */
+  public SimHarness everyLoop(Runnable callback) {
+    loopCallbacks.add(callback);
+    return this;
+  }
+
+  /** Moves the clock forward one loop and runs the robot's loop, like robotPeriodic does */
+  public void step() {
+    SimHooks.stepTiming(LOOP_PERIOD_SECONDS);
+    double now = getTimeSeconds();
+    // A hair of slack so an event at exactly a loop boundary doesn't slip to the next one
+    while (!events.isEmpty() && events.peek().timeSeconds <= now + 1e-9) {
+      events.poll().action.run();
+    }
+
+    DriverStationSim.notifyNewData();
+    DriverStation.refreshData();
+    inputsPipeline.run();
+    CommandScheduler.getInstance().run();
+    SimWorld.step(LOOP_PERIOD_SECONDS);
+    for (Runnable callback : loopCallbacks) {
+      callback.run();
+    }
+    loopCount++;
+  }
+
+  /**
+   * Runs for a while
+   *
+   * @param seconds how much sim time to run for
+   */
+  public void run(double seconds) {
+    long loops = Math.round(seconds / LOOP_PERIOD_SECONDS);
+    for (long i = 0; i < loops; i++) {
+      step();
+    }
+  }
+
+  /**
+   * Runs until something is true, checking after every loop
+   *
+   * @param condition what to wait for
+   * @param timeoutSeconds how much sim time to give up after
+   * @return true if the condition became true, false if it timed out
+   */
+  public boolean runUntil(BooleanSupplier condition, double timeoutSeconds) {
+    double deadline = getTimeSeconds() + timeoutSeconds;
+    while (getTimeSeconds() < deadline) {
+      step();
+      if (condition.getAsBoolean()) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Gets the virtual time
+   *
+   * @return seconds since the harness was made
+   */
+  public double getTimeSeconds() {
+    return Timer.getFPGATimestamp() - startTimeSeconds;
+  }
+
+  public long getLoopCount() {
+    return loopCount;
+  }
+
+  @Override
+  public void close() {
+    CommandScheduler scheduler = CommandScheduler.getInstance();
+    scheduler.cancelAll();
+    scheduler.unregisterAllSubsystems();
+    scheduler.getDefaultButtonLoop().clear();
+    DriverStationSim.resetData();
+    DriverStationSim.notifyNewData();
+    DriverStation.refreshData();
+    SimHooks.resumeTiming();
+    // The next harness makes its own IO
+    SimWorld.clear();
+  }
+}
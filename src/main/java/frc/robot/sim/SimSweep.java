@@ -0,0 +1,176 @@
+package frc.robot.sim;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays a match with the greedy driver for every combination of driver reaction time and sensor
+ * noise, with a few seeds each, and writes the throughput and rejects each got. The HAL, its clock
+ * and the scheduler are static, so scenarios are split between worker JVMs, one per core, each
+ * running its share back to back on its own {@link SimHarness}
+ *
+ * <p>Run with ./gradlew simSweep. Takes --seeds for how many seeds per combination, --jobs for how
+ * many workers and --out for the CSV to write (sweep.csv by default)
+ */
+public final class SimSweep {
+  private static final double[] REACTION_SECONDS = {0.1, 0.2, 0.35, 0.5};
+  private static final double[] DISTANCE_NOISE_METERS = {0.0, 0.005, 0.02, 0.05};
+  private static final double[] COLOR_NOISE = {0.0, 0.02, 0.05, 0.1};
+
+  private static final String WORKER_FLAG = "--worker";
+  // Workers print results on lines starting with this so HAL chatter can be told apart
+  private static final String RESULT_PREFIX = "RESULT,";
+
+  private SimSweep() {}
+
+  public static void main(String... args) throws IOException, InterruptedException {
+    if (args.length > 0 && args[0].equals(WORKER_FLAG)) {
+      runWorker(args);
+      System.exit(0);
+    }
+
+    int seeds = 4;
+    int jobs = Runtime.getRuntime().availableProcessors();
+    Path out = Path.of("sweep.csv");
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--seeds" -> seeds = Integer.parseInt(args[++i]);
+        case "--jobs" -> jobs = Integer.parseInt(args[++i]);
+        case "--out" -> out = Path.of(args[++i]);
+        default -> {
+          System.err.println("Usage: SimSweep [--seeds n] [--jobs n] [--out file]");
+          System.exit(2);
+        }
+      }
+    }
+
+    List<String> scenarios = new ArrayList<>();
+    for (double reaction : REACTION_SECONDS) {
+      for (double distanceNoise : DISTANCE_NOISE_METERS) {
+        for (double colorNoise : COLOR_NOISE) {
+          for (int seed = 0; seed < seeds; seed++) {
+            scenarios.add(
+                String.format(
+                    Locale.ROOT, "%s,%s,%s,%d", reaction, distanceNoise, colorNoise, seed));
+          }
+        }
+      }
+    }
+    jobs = Math.max(1, Math.min(jobs, scenarios.size()));
+    System.out.println("Running " + scenarios.size() + " scenarios on " + jobs + " workers");
+
+    // Dealt out round robin so every worker gets a mix of easy and noisy ones
+    List<List<String>> shares = new ArrayList<>();
+    for (int i = 0; i < jobs; i++) {
+      shares.add(new ArrayList<>());
+    }
+    for (int i = 0; i < scenarios.size(); i++) {
+      shares.get(i % jobs).add(scenarios.get(i));
+    }
+
+    long start = System.nanoTime();
+    ExecutorService pool = Executors.newFixedThreadPool(jobs);
+    List<Future<List<String>>> futures = new ArrayList<>();
+    for (List<String> share : shares) {
+      futures.add(pool.submit(() -> startWorker(share)));
+    }
+    pool.shutdown();
+
+    List<String> results = new ArrayList<>();
+    for (Future<List<String>> future : futures) {
+      try {
+        results.addAll(future.get());
+      } catch (ExecutionException e) {
+        System.err.println("Worker failed: " + e.getCause());
+      }
+    }
+    results.sort(null);
+
+    try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(out))) {
+      writer.println(
+          "reaction (s),distance noise (m),color noise,seed,shots,balls/min,rejects,mean cycle (s),"
+              + "wall (s)");
+      results.forEach(writer::println);
+    }
+    System.out.printf(
+        Locale.ROOT,
+        "%d of %d scenarios done in %.1f s, written to %s%n",
+        results.size(),
+        scenarios.size(),
+        (System.nanoTime() - start) / 1e9,
+        out);
+    System.exit(results.size() == scenarios.size() ? 0 : 1);
+  }
+
+  private static List<String> startWorker(List<String> share)
+      throws IOException, InterruptedException {
+    List<String> command = new ArrayList<>();
+    command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add("-Djava.library.path=" + System.getProperty("java.library.path"));
+    command.add(SimSweep.class.getName());
+    command.add(WORKER_FLAG);
+    command.addAll(share);
+
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    List<String> results = new ArrayList<>();
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.startsWith(RESULT_PREFIX)) {
+          results.add(line.substring(RESULT_PREFIX.length()));
+        }
+      }
+    }
+    process.waitFor();
+    return results;
+  }
+
+  private static void runWorker(String[] args) {
+    for (int i = 1; i < args.length; i++) {
+      String[] parts = args[i].split(",");
+      double reaction = Double.parseDouble(parts[0]);
+      double distanceNoise = Double.parseDouble(parts[1]);
+      double colorNoise = Double.parseDouble(parts[2]);
+      long seed = Long.parseLong(parts[3]);
+
+      long start = System.nanoTime();
+      Scenarios.MatchResult result;
+      // One random for the script and the sensors, so a seed always plays out the same
+      Random random = new Random(seed);
+      try (SimHarness sim = new SimHarness()) {
+        sim.intake.getCANrangeSim().setNoise(distanceNoise, random);
+        sim.routing.getCANrangeSim().setNoise(distanceNoise, random);
+        sim.intake.getColorSensorSim().setNoise(colorNoise, random);
+        sim.enable();
+        Scenarios.greedyDriver(sim, reaction, random);
+        result = Scenarios.playMatch(sim, Scenarios.MATCH_SECONDS);
+      }
+
+      System.out.printf(
+          Locale.ROOT,
+          "%s%s,%d,%.2f,%d,%.3f,%.2f%n",
+          RESULT_PREFIX,
+          args[i],
+          result.shots,
+          result.ballsPerMinute(),
+          result.rejects,
+          result.meanCycleSeconds(),
+          (System.nanoTime() - start) / 1e9);
+    }
+  }
+}
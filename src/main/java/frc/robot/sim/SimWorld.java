@@ -0,0 +1,125 @@
+package frc.robot.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Steps every simulated mechanism together in small fixed substeps. A TalonFX runs its closed loop
+ * at 1 kHz on the latest request, so sim IO holds on to what was requested and works out its
+ * voltage every substep here instead of once a loop. That keeps sim gains close to what they'd be
+ * on the robot
+ *
+ * <p>Sim IO adds itself when constructed. Robot steps the world in simulationPeriodic and {@link
+ * SimHarness} steps it every loop, both after the scheduler so the next loop's inputs see the
+ * result. The substep can be changed with -Dsim.substep=seconds, and sim controllers have to be
+ * built with {@link #SUBSTEP_SECONDS} as their period
+ *
+ * <p>Stepping is main thread only, but sim IO can be made and removed from any thread so {@link
+ * GainTuner} can build them in parallel
+ */
+public final class SimWorld {
+  /** A plant plus whatever emulates its motor controller */
+  public interface Mechanism {
+    /**
+     * Runs the onboard controller once and moves the plant forward
+     *
+     * @param dtSeconds how long to move forward, always {@link #SUBSTEP_SECONDS}
+     */
+    void substep(double dtSeconds);
+  }
+
+  public static final double SUBSTEP_SECONDS =
+      Double.parseDouble(System.getProperty("sim.substep", "0.001"));
+
+  // How long a whole step can take before it counts as an overrun. A loop is 20 ms and the robot
+  // code needs most of it
+  public static final double STEP_BUDGET_MS = 2.0;
+
+  private static final List<Mechanism> mechanisms = new ArrayList<>();
+  private static volatile Mechanism[] mechanismArray = new Mechanism[0];
+
+  private static long steps = 0;
+  private static long overruns = 0;
+  private static double totalStepMS = 0.0;
+  private static double maxStepMS = 0.0;
+
+  private SimWorld() {}
+
+  /**
+   * Adds a mechanism to step. Call from sim IO constructors
+   *
+   * @param mechanism the mechanism
+   */
+  public static synchronized void add(Mechanism mechanism) {
+    mechanisms.add(mechanism);
+    mechanismArray = mechanisms.toArray(new Mechanism[0]);
+  }
+
+  /**
+   * Stops stepping a mechanism, for sim IO that's stepped some other way
+   *
+   * @param mechanism the mechanism
+   */
+  public static synchronized void remove(Mechanism mechanism) {
+    if (mechanisms.remove(mechanism)) {
+      mechanismArray = mechanisms.toArray(new Mechanism[0]);
+    }
+  }
+
+  /** Forgets every mechanism and the timing stats, so a new set of sim IO starts clean */
+  public static synchronized void clear() {
+    mechanisms.clear();
+    mechanismArray = new Mechanism[0];
+    steps = 0;
+    overruns = 0;
+    totalStepMS = 0.0;
+    maxStepMS = 0.0;
+  }
+
+  /**
+   * Moves every mechanism forward a loop, substep by substep
+   *
+   * @param periodSeconds how long the loop is
+   */
+  public static void step(double periodSeconds) {
+    if (mechanismArray.length == 0) return;
+
+    long start = System.nanoTime();
+    long substeps = Math.max(1, Math.round(periodSeconds / SUBSTEP_SECONDS));
+    // Substep by substep across all of them, so anything that couples mechanisms later sees them at
+    // the same time
+    for (long i = 0; i < substeps; i++) {
+      for (Mechanism mechanism : mechanismArray) {
+        mechanism.substep(SUBSTEP_SECONDS);
+      }
+    }
+    double stepMS = (System.nanoTime() - start) / 1e6;
+
+    steps++;
+    totalStepMS += stepMS;
+    maxStepMS = Math.max(maxStepMS, stepMS);
+    if (stepMS > STEP_BUDGET_MS) {
+      overruns++;
+    }
+    Logger.recordOutput("SimWorld/Step MS", stepMS);
+    Logger.recordOutput("SimWorld/Overruns", overruns);
+  }
+
+  public static double getMeanStepMS() {
+    return steps == 0 ? 0.0 : totalStepMS / steps;
+  }
+
+  public static double getMaxStepMS() {
+    return maxStepMS;
+  }
+
+  /**
+   * Gets how many steps have gone over {@link #STEP_BUDGET_MS}
+   *
+   * @return overruns since the last {@link #clear()}
+   */
+  public static long getOverruns() {
+    return overruns;
+  }
+}
@@ -1,6 +1,7 @@
 package frc.robot.subsystems;
 
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.ArmFeedforward;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.controller.ProfiledPIDController;
@@ -11,9 +12,9 @@ import edu.wpi.first.math.trajectory.TrapezoidProfile.Constraints;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
-import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
 import frc.robot.Robot;
+import frc.robot.sim.SimWorld;
 import frc.robot.subsystems.pivot.PivotIO;
 import frc.robot.subsystems.pivot.PivotIOInputsAutoLogged;
 import frc.robot.subsystems.pivot.PivotIOReal;
@@ -22,14 +23,17 @@ import frc.robot.subsystems.roller.RollerIO;
 import frc.robot.subsystems.roller.RollerIOInputsAutoLogged;
 import frc.robot.subsystems.roller.RollerIOReal;
 import frc.robot.subsystems.roller.RollerIOSim;
+import frc.robot.util.IOInputsPipeline;
+import frc.robot.util.ProfiledSubsystem;
 import java.util.function.DoubleSupplier;
 import java.util.function.Supplier;
 import org.littletonrobotics.junction.AutoLogOutput;
-import org.littletonrobotics.junction.Logger;
+import org.littletonrobotics.junction.networktables.LoggedNetworkBoolean;
 
-public class ArmSubsystem extends SubsystemBase {
+public class ArmSubsystem extends ProfiledSubsystem {
 
   public static final double PANEL_CURRENT_THRESHOLD = 80.0;
+  public static final double PIVOT_TOLERANCE_ROTATIONS = Units.degreesToRotations(2.0);
 
   public enum ArmState {
     // The roller voltage numbers are largly arbitrary, but + is towards the robot and - is away
@@ -63,37 +67,43 @@ public class ArmSubsystem extends SubsystemBase {
 
   private boolean hasPanel;
 
-  public ArmSubsystem() {
-    if (Robot.ROBOT_TYPE.isReal()) {
-      // Just factory defualt. Robot isn't real so not sure I need to config it???
-      TalonFXConfiguration rollerConfig = new TalonFXConfiguration();
-
-      rollerIO = new RollerIOReal(0, rollerConfig);
-
-      TalonFXConfiguration pivotConfig = new TalonFXConfiguration();
-
-      pivotIO = new PivotIOReal(0, pivotConfig);
-    } else {
-      rollerIO =
-          new RollerIOSim(
-              0.01,
-              3.37,
-              // TODO: TUNE
-              new SimpleMotorFeedforward(0, 0),
-              new ProfiledPIDController(0, 0, 0, new Constraints(0, 0)),
-              new PIDController(0, 0, 0));
-
-      pivotIO =
-          new PivotIOSim(
-              60.375,
-              0.027,
-              Units.inchesToMeters(16.48),
-              // Mates once again bad. I'll say a little under horizontal
-              -2.1,
-              0.0,
-              new ProfiledPIDController(0, 0, 0, new Constraints(0, 0)),
-              new ArmFeedforward(0, 0, 0));
-    }
+  // Check extension against where the pivot is now rather than where it was when the frame was
+  // sent. Turn off from the dashboard to use the newest high frequency sample instead
+  private final LoggedNetworkBoolean useLatencyCompensation =
+      new LoggedNetworkBoolean("/Tuning/Arm/Use Latency Compensation", true);
+
+  /**
+   * Creates the arm with real or sim IO, whichever the robot is running as
+   *
+   * @param inputsPipeline reads the IO every loop
+   */
+  public ArmSubsystem(IOInputsPipeline inputsPipeline) {
+    this(
+        inputsPipeline,
+        Robot.ROBOT_TYPE.isReal() ? createRealRollerIO() : createSimRollerIO(),
+        Robot.ROBOT_TYPE.isReal() ? createRealPivotIO() : createSimPivotIO());
+  }
+
+  /**
+   * Creates the arm with the given IO
+   *
+   * @param inputsPipeline reads the IO every loop
+   * @param rollerIO the roller
+   * @param pivotIO the pivot
+   */
+  public ArmSubsystem(IOInputsPipeline inputsPipeline, RollerIO rollerIO, PivotIO pivotIO) {
+    super("Arm");
+    this.rollerIO = rollerIO;
+    this.pivotIO = pivotIO;
+
+    // Inputs are updated and logged by the inputs pipeline
+    inputsPipeline.register(
+        "Arm/Roller",
+        () -> rollerIO.updateInputs(rollerIOInputs),
+        rollerIOInputs,
+        RollerIO.RATE_POLICY);
+    inputsPipeline.register(
+        "Arm/Pivot", () -> pivotIO.updateInputs(pivotIOInputs), pivotIOInputs, PivotIO.RATE_POLICY);
 
     // Trigger that sets has panel if current threshold is reached
     new Trigger(() -> Math.abs(rollerCurrentFilterValue) > PANEL_CURRENT_THRESHOLD)
@@ -102,14 +112,72 @@ public class ArmSubsystem extends SubsystemBase {
         .onFalse(Commands.runOnce(() -> hasPanel = false));
   }
 
-  @Override
-  public void periodic() {
-    rollerIO.updateInputs(rollerIOInputs);
-    Logger.processInputs("Arm/Roller", rollerIOInputs);
+  private static RollerIO createRealRollerIO() {
+    // Just factory defualt. Robot isn't real so not sure I need to config it???
+    TalonFXConfiguration rollerConfig = new TalonFXConfiguration();
+    return new RollerIOReal(0, rollerConfig);
+  }
 
-    pivotIO.updateInputs(pivotIOInputs);
-    Logger.processInputs("Arm/Pivot", pivotIOInputs);
+  private static PivotIO createRealPivotIO() {
+    TalonFXConfiguration pivotConfig = new TalonFXConfiguration();
+    // Sampled fast to see the arm's swing between loops
+    return new PivotIOReal(0, pivotConfig, true);
+  }
 
+  public static RollerIO createSimRollerIO() {
+    // TODO: TUNE
+    return createSimRollerIO(
+        new SimpleMotorFeedforward(0, 0), new PIDController(0, 0, 0, SimWorld.SUBSTEP_SECONDS));
+  }
+
+  /**
+   * Creates the sim roller with the given velocity gains, so they can be tried out in sim
+   *
+   * @param feedforward the velocity feedforward
+   * @param velocityPID the velocity PID, with a period of {@link SimWorld#SUBSTEP_SECONDS}
+   * @return the sim roller
+   */
+  public static RollerIOSim createSimRollerIO(
+      SimpleMotorFeedforward feedforward, PIDController velocityPID) {
+    return new RollerIOSim(
+        0.01,
+        3.37,
+        feedforward,
+        new ProfiledPIDController(0, 0, 0, new Constraints(0, 0), SimWorld.SUBSTEP_SECONDS),
+        velocityPID);
+  }
+
+  public static PivotIO createSimPivotIO() {
+    return createSimPivotIO(
+        // Rough gains so the sim holds its setpoints, not tuned on the real arm. kV is from the
+        // motor's free speed through the gearing
+        new ProfiledPIDController(20.0, 0, 0, new Constraints(4.0, 8.0), SimWorld.SUBSTEP_SECONDS),
+        new ArmFeedforward(0, 0, 1.19));
+  }
+
+  /**
+   * Creates the sim pivot with the given position gains, so they can be tried out in sim
+   *
+   * @param positionPID the position PID in radians, with a period of {@link
+   *     SimWorld#SUBSTEP_SECONDS}
+   * @param feedforward the feedforward
+   * @return the sim pivot
+   */
+  public static PivotIOSim createSimPivotIO(
+      ProfiledPIDController positionPID, ArmFeedforward feedforward) {
+    return new PivotIOSim(
+        60.375,
+        0.027,
+        Units.inchesToMeters(16.48),
+        // Mates once again bad. I'll say a little under horizontal
+        -2.1,
+        0.0,
+        positionPID,
+        feedforward);
+  }
+
+  @Override
+  protected void profiledPeriodic() {
     rollerCurrentFilterValue = rollerCurrentFilter.calculate(rollerIOInputs.statorCurrentAmps);
   }
 
@@ -136,7 +204,26 @@ public class ArmSubsystem extends SubsystemBase {
   }
 
   public boolean atExtension(Rotation2d setpoint) {
-    return pivotIOInputs.position.equals(setpoint);
+    // Exact equality never happens on a real mechanism, so use a tolerance
+    return MathUtil.isNear(
+        setpoint.getRotations(), getPivotPositionRotations(), PIVOT_TOLERANCE_ROTATIONS);
+  }
+
+  /**
+   * Gets the pivot's position. Latency compensated if that's on, otherwise the newest high
+   * frequency sample if there is one
+   *
+   * @return the pivot's position in rotations
+   */
+  public double getPivotPositionRotations() {
+    if (useLatencyCompensation.get()) {
+      return pivotIOInputs.latencyCompensatedPositionRotations;
+    }
+
+    int samples = pivotIOInputs.positionSamplesRotations.length;
+    return samples > 0
+        ? pivotIOInputs.positionSamplesRotations[samples - 1]
+        : pivotIOInputs.positionRotations;
   }
 
   @AutoLogOutput(key = "Arm/Pivot/At Extension")
@@ -144,6 +231,11 @@ public class ArmSubsystem extends SubsystemBase {
     return atExtension(pivotIO.getSetpoint());
   }
 
+  /** Gets the roller sim so a sim can put panels in it. Null on a real robot */
+  public RollerIOSim getRollerSim() {
+    return rollerIO instanceof RollerIOSim sim ? sim : null;
+  }
+
   @AutoLogOutput(key = "Arm/Has Panel")
   public boolean hasPanel() {
     return hasPanel;
@@ -10,15 +10,18 @@ import edu.wpi.first.math.trajectory.TrapezoidProfile.Constraints;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
 import edu.wpi.first.wpilibj.I2C.Port;
-import edu.wpi.first.wpilibj.util.Color;
-import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import edu.wpi.first.wpilibj2.command.Command;
 import frc.robot.Robot;
+import frc.robot.sim.SimWorld;
 import frc.robot.subsystems.canrange.CANRangeIO;
 import frc.robot.subsystems.canrange.CANRangeIOInputsAutoLogged;
 import frc.robot.subsystems.canrange.CANRangeIOReal;
 import frc.robot.subsystems.canrange.CANRangeIOSim;
+import frc.robot.subsystems.colorsensor.BallColorClassifier;
+import frc.robot.subsystems.colorsensor.BallColorClassifier.BallColor;
 import frc.robot.subsystems.colorsensor.ColorSensorIO;
 import frc.robot.subsystems.colorsensor.ColorSensorIOInputsAutoLogged;
+import frc.robot.subsystems.colorsensor.ColorSensorIOSim;
 import frc.robot.subsystems.colorsensor.RevColorSensorV3IOReal;
 import frc.robot.subsystems.pivot.PivotIO;
 import frc.robot.subsystems.pivot.PivotIOInputsAutoLogged;
@@ -28,11 +31,28 @@ import frc.robot.subsystems.roller.RollerIO;
 import frc.robot.subsystems.roller.RollerIOInputsAutoLogged;
 import frc.robot.subsystems.roller.RollerIOReal;
 import frc.robot.subsystems.roller.RollerIOSim;
-import org.littletonrobotics.junction.Logger;
-
-public class IntakeSubsystem extends SubsystemBase {
-  public static final double BLUE_THRESHOLD_VALUE = 100;
-  public static final double RED_THRESHOLD_VALUE = 100;
+import frc.robot.util.IOInputsPipeline;
+import frc.robot.util.ProfiledSubsystem;
+import java.util.function.Supplier;
+import org.littletonrobotics.junction.AutoLogOutput;
+
+public class IntakeSubsystem extends ProfiledSubsystem {
+  public enum IntakeState {
+    // Voltages are largely arbitrary. + pulls balls in, - pushes them back out
+    IDLE(0.0, 0.0),
+    INTAKE(6.0, 8.0),
+    REJECT(-6.0, -8.0),
+    // Keep feeding so the ball makes it into the routing
+    INDEX(4.0, 0.0);
+
+    final double fourbarRollerVoltage;
+    final double flywheelVoltage;
+
+    private IntakeState(double fourbarRollerVoltage, double flywheelVoltage) {
+      this.fourbarRollerVoltage = fourbarRollerVoltage;
+      this.flywheelVoltage = flywheelVoltage;
+    }
+  }
 
   private final PivotIO pivotIO;
   private PivotIOInputsAutoLogged pivotIOInputs = new PivotIOInputsAutoLogged();
@@ -49,93 +69,182 @@ public class IntakeSubsystem extends SubsystemBase {
   private final ColorSensorIO colorSensorIO;
   private ColorSensorIOInputsAutoLogged colorSensorIOInputs = new ColorSensorIOInputsAutoLogged();
 
-  public IntakeSubsystem() {
-    CANrangeConfiguration canrangeConfig = new CANrangeConfiguration();
-    if (Robot.ROBOT_TYPE.isReal()) {
-      TalonFXConfiguration pivotConfig = new TalonFXConfiguration();
-      pivotIO = new PivotIOReal(0, pivotConfig);
-
-      // Could set these configs up. Should I or is it not worth it?
-      TalonFXConfiguration fourbarRollerConfig = new TalonFXConfiguration();
-      fourbarRollerIO = new RollerIOReal(0, fourbarRollerConfig);
-
-      TalonFXConfiguration intakeFlywheelConfig = new TalonFXConfiguration();
-      intakeFlywheelIO = new RollerIOReal(0, intakeFlywheelConfig);
-
-      canrangeIO = new CANRangeIOReal(0, canrangeConfig);
-
-      // Onboard I2C
-      colorSensorIO = new RevColorSensorV3IOReal(Port.kOnboard);
-    } else {
-      // TODO: ACTUAL VALUES
-      pivotIO =
-          new PivotIOSim(
-              0.0,
-              0.0,
-              0.0,
-              0.0,
-              0.0,
-              new ProfiledPIDController(0.0, 0.0, 0.0, new Constraints(0.0, 0.0)),
-              new ArmFeedforward(0.0, 0.0, 0.0));
-
-      // TODO: ACTUAL VALUES
-      fourbarRollerIO =
-          new RollerIOSim(
-              0,
-              0,
-              new SimpleMotorFeedforward(0, 0),
-              new ProfiledPIDController(0, 0, 0, new Constraints(0, 0)),
-              new PIDController(0, 0, 0));
-
-      // TODO: ACTUAL VALUES
-      intakeFlywheelIO =
-          new RollerIOSim(
-              0,
-              0,
-              new SimpleMotorFeedforward(0, 0),
-              new ProfiledPIDController(0, 0, 0, new Constraints(0, 0)),
-              new PIDController(0, 0, 0));
-
-      canrangeIO = new CANRangeIOSim(0, canrangeConfig);
-
-      // Not simming color sensor rn
-      colorSensorIO = new RevColorSensorV3IOReal(Port.kOnboard);
-    }
+  private Alliance alliance = null;
+
+  /**
+   * Creates the intake with real or sim IO, whichever the robot is running as
+   *
+   * @param inputsPipeline reads the IO every loop
+   */
+  public IntakeSubsystem(IOInputsPipeline inputsPipeline) {
+    this(
+        inputsPipeline,
+        Robot.ROBOT_TYPE.isReal() ? createRealPivotIO() : createSimPivotIO(),
+        Robot.ROBOT_TYPE.isReal() ? createRealRollerIO() : createSimRollerIO(),
+        Robot.ROBOT_TYPE.isReal() ? createRealRollerIO() : createSimRollerIO(),
+        Robot.ROBOT_TYPE.isReal() ? createRealCANRangeIO() : createSimCANRangeIO(),
+        Robot.ROBOT_TYPE.isReal() ? createRealColorSensorIO() : createSimColorSensorIO());
   }
 
-  @Override
-  public void periodic() {
-    // Update all the inputs
-    fourbarRollerIO.updateInputs(fourbarRollerIOInputs);
-    Logger.processInputs("Intake/Fourbar Roller", fourbarRollerIOInputs);
+  /**
+   * Creates the intake with the given IO
+   *
+   * @param inputsPipeline reads the IO every loop
+   * @param pivotIO the intake pivot
+   * @param fourbarRollerIO the rollers on the fourbar
+   * @param intakeFlywheelIO the flywheel
+   * @param canrangeIO the CANrange that sees balls come in
+   * @param colorSensorIO the color sensor that sees what color they are
+   */
+  public IntakeSubsystem(
+      IOInputsPipeline inputsPipeline,
+      PivotIO pivotIO,
+      RollerIO fourbarRollerIO,
+      RollerIO intakeFlywheelIO,
+      CANRangeIO canrangeIO,
+      ColorSensorIO colorSensorIO) {
+    super("Intake");
+    this.pivotIO = pivotIO;
+    this.fourbarRollerIO = fourbarRollerIO;
+    this.intakeFlywheelIO = intakeFlywheelIO;
+    this.canrangeIO = canrangeIO;
+    this.colorSensorIO = colorSensorIO;
+
+    // Inputs are updated and logged by the inputs pipeline
+    inputsPipeline.register(
+        "Intake/Fourbar Roller",
+        () -> fourbarRollerIO.updateInputs(fourbarRollerIOInputs),
+        fourbarRollerIOInputs,
+        RollerIO.RATE_POLICY);
+    inputsPipeline.register(
+        "Intake/Flywheel",
+        () -> intakeFlywheelIO.updateInputs(intakeFlywheelIOInputs),
+        intakeFlywheelIOInputs,
+        RollerIO.RATE_POLICY);
+    inputsPipeline.register(
+        "Intake/CANrange", () -> canrangeIO.updateInputs(canrangeIOInputs), canrangeIOInputs);
+    inputsPipeline.register(
+        "Intake/Color Sensor",
+        () -> colorSensorIO.updateInputs(colorSensorIOInputs),
+        colorSensorIOInputs);
+  }
 
-    intakeFlywheelIO.updateInputs(intakeFlywheelIOInputs);
-    Logger.processInputs("Intake/Flywheel", intakeFlywheelIOInputs);
+  private static PivotIO createRealPivotIO() {
+    TalonFXConfiguration pivotConfig = new TalonFXConfiguration();
+    return new PivotIOReal(0, pivotConfig);
+  }
 
-    canrangeIO.updateInputs(canrangeIOInputs);
-    Logger.processInputs("Intake/CANrange", canrangeIOInputs);
+  private static RollerIO createRealRollerIO() {
+    // Could set these configs up. Should I or is it not worth it?
+    TalonFXConfiguration rollerConfig = new TalonFXConfiguration();
+    return new RollerIOReal(0, rollerConfig);
+  }
 
-    colorSensorIO.updateInputs(colorSensorIOInputs);
-    Logger.processInputs("Intake/Color Sensor", colorSensorIOInputs);
+  private static CANRangeIO createRealCANRangeIO() {
+    return new CANRangeIOReal(0, new CANrangeConfiguration());
   }
 
-  public Color getSensedColor() {
-    // Parses the color from the hex string
-    return new Color(colorSensorIOInputs.color);
+  private static ColorSensorIO createRealColorSensorIO() {
+    // Onboard I2C
+    return new RevColorSensorV3IOReal(Port.kOnboard);
   }
 
-  public boolean sensedIsAllianceColor() {
-    if (DriverStation.getAlliance().isEmpty()) return false;
+  public static PivotIO createSimPivotIO() {
+    return createSimPivotIO(
+        new ProfiledPIDController(
+            0.0, 0.0, 0.0, new Constraints(0.0, 0.0), SimWorld.SUBSTEP_SECONDS),
+        new ArmFeedforward(0.0, 0.0, 0.0));
+  }
+
+  /**
+   * Creates the sim pivot with the given position gains, so they can be tried out in sim
+   *
+   * @param positionPID the position PID in radians, with a period of {@link
+   *     SimWorld#SUBSTEP_SECONDS}
+   * @param feedforward the feedforward
+   * @return the sim pivot
+   */
+  public static PivotIOSim createSimPivotIO(
+      ProfiledPIDController positionPID, ArmFeedforward feedforward) {
+    // TODO: ACTUAL VALUES. Placeholders for now since the sim won't take zeros
+    return new PivotIOSim(40.0, 0.05, 0.3, 0.0, Math.PI / 2.0, positionPID, feedforward);
+  }
+
+  public static RollerIO createSimRollerIO() {
+    return createSimRollerIO(
+        new SimpleMotorFeedforward(0, 0), new PIDController(0, 0, 0, SimWorld.SUBSTEP_SECONDS));
+  }
+
+  /**
+   * Creates the sim roller with the given velocity gains, so they can be tried out in sim
+   *
+   * @param feedforward the velocity feedforward
+   * @param velocityPID the velocity PID, with a period of {@link SimWorld#SUBSTEP_SECONDS}
+   * @return the sim roller
+   */
+  public static RollerIOSim createSimRollerIO(
+      SimpleMotorFeedforward feedforward, PIDController velocityPID) {
+    // TODO: ACTUAL VALUES. Placeholders for now since the sim won't take zeros
+    return new RollerIOSim(
+        0.001,
+        4.0,
+        feedforward,
+        new ProfiledPIDController(0, 0, 0, new Constraints(0, 0), SimWorld.SUBSTEP_SECONDS),
+        velocityPID);
+  }
+
+  public static CANRangeIO createSimCANRangeIO() {
+    return new CANRangeIOSim(0, new CANrangeConfiguration());
+  }
+
+  public static ColorSensorIO createSimColorSensorIO() {
+    return new ColorSensorIOSim();
+  }
 
-    Alliance alliance = DriverStation.getAlliance().get();
+  @Override
+  protected void profiledPeriodic() {
+    // Only changes when the FMS connects, so no need to ask every time the trigger polls
+    alliance = DriverStation.getAlliance().orElse(null);
+  }
 
-    Color sensedColor = getSensedColor();
-    // I think this would need tuning irl if this robot got built
-    return (sensedColor.blue > BLUE_THRESHOLD_VALUE && alliance == Alliance.Blue)
-        || (sensedColor.red > RED_THRESHOLD_VALUE && alliance == Alliance.Red);
+  public Command setStateVoltage(Supplier<IntakeState> stateSupplier) {
+    return this.run(
+        () -> {
+          fourbarRollerIO.setVoltage(stateSupplier.get().fourbarRollerVoltage);
+          intakeFlywheelIO.setVoltage(stateSupplier.get().flywheelVoltage);
+        });
+  }
+
+  @AutoLogOutput(key = "Intake/Sensed Ball Color")
+  public BallColor getSensedColor() {
+    return BallColorClassifier.classify(
+        colorSensorIOInputs.red, colorSensorIOInputs.blue, colorSensorIOInputs.proximity);
+  }
+
+  public boolean sensedIsAllianceColor() {
+    if (alliance == null) return false;
+
+    BallColor sensedColor = getSensedColor();
+    return (sensedColor == BallColor.BLUE && alliance == Alliance.Blue)
+        || (sensedColor == BallColor.RED && alliance == Alliance.Red);
   }
 
   public boolean getBeambreakIsDetected() {
     return canrangeIOInputs.isDetected;
   }
+
+  /** Gets the CANrange sim so a sim can put balls in front of it. Null on a real robot */
+  public CANRangeIOSim getCANrangeSim() {
+    return canrangeIO instanceof CANRangeIOSim sim ? sim : null;
+  }
+
+  /** Gets the fourbar roller sim so a sim can move balls with it. Null on a real robot */
+  public RollerIOSim getFourbarRollerSim() {
+    return fourbarRollerIO instanceof RollerIOSim sim ? sim : null;
+  }
+
+  /** Gets the color sensor sim so a sim can show it balls. Null on a real robot */
+  public ColorSensorIOSim getColorSensorSim() {
+    return colorSensorIO instanceof ColorSensorIOSim sim ? sim : null;
+  }
 }
@@ -6,8 +6,9 @@ import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.controller.ProfiledPIDController;
 import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.trajectory.TrapezoidProfile.Constraints;
-import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import edu.wpi.first.wpilibj2.command.Command;
 import frc.robot.Robot;
+import frc.robot.sim.SimWorld;
 import frc.robot.subsystems.canrange.CANRangeIO;
 import frc.robot.subsystems.canrange.CANRangeIOInputsAutoLogged;
 import frc.robot.subsystems.canrange.CANRangeIOReal;
@@ -16,11 +17,28 @@ import frc.robot.subsystems.roller.RollerIO;
 import frc.robot.subsystems.roller.RollerIOInputsAutoLogged;
 import frc.robot.subsystems.roller.RollerIOReal;
 import frc.robot.subsystems.roller.RollerIOSim;
-import org.littletonrobotics.junction.Logger;
+import frc.robot.util.IOInputsPipeline;
+import frc.robot.util.ProfiledSubsystem;
+import java.util.function.Supplier;
 
 // The routing has 2 motors. One controls all but one set of rollers
 // The second controls the last pair of rollers which index into the shooter
-public class RoutingSubsystem extends SubsystemBase {
+public class RoutingSubsystem extends ProfiledSubsystem {
+  public enum RoutingState {
+    // Voltages are largely arbitrary. + moves balls towards the shooter
+    IDLE(0.0, 0.0),
+    // The indexing rollers stay stopped so the ball waits at the CANrange
+    INDEX(6.0, 0.0),
+    SHOOT(6.0, 8.0);
+
+    final double primaryRollerVoltage;
+    final double shooterIndexRollerVoltage;
+
+    private RoutingState(double primaryRollerVoltage, double shooterIndexRollerVoltage) {
+      this.primaryRollerVoltage = primaryRollerVoltage;
+      this.shooterIndexRollerVoltage = shooterIndexRollerVoltage;
+    }
+  }
 
   // The main rollers from the intake until the last pair
   private final RollerIO primaryRoutingRollers;
@@ -34,52 +52,112 @@ public class RoutingSubsystem extends SubsystemBase {
   private final CANRangeIO canRangeIO;
   private CANRangeIOInputsAutoLogged canRangeIOInputs = new CANRangeIOInputsAutoLogged();
 
-  public RoutingSubsystem() {
-    CANrangeConfiguration canRangeConfig = new CANrangeConfiguration();
-
-    if (Robot.ROBOT_TYPE.isReal()) {
-      TalonFXConfiguration primaryRollerConfig = new TalonFXConfiguration();
-      primaryRoutingRollers = new RollerIOReal(0, primaryRollerConfig);
-
-      TalonFXConfiguration shooterIndexRollerConfig = new TalonFXConfiguration();
-      shooterIndexRollers = new RollerIOReal(0, shooterIndexRollerConfig);
-
-      canRangeIO = new CANRangeIOReal(0, canRangeConfig);
-    } else {
-      // TODO: SET THESE VALUES
-      primaryRoutingRollers =
-          new RollerIOSim(
-              0,
-              0,
-              new SimpleMotorFeedforward(0, 0),
-              new ProfiledPIDController(0, 0, 0, new Constraints(0, 0)),
-              new PIDController(0, 0, 0));
-
-      shooterIndexRollers =
-          new RollerIOSim(
-              0,
-              0,
-              new SimpleMotorFeedforward(0, 0),
-              new ProfiledPIDController(0, 0, 0, new Constraints(0, 0)),
-              new PIDController(0, 0, 0));
-
-      canRangeIO = new CANRangeIOSim(0, canRangeConfig);
-    }
+  /**
+   * Creates the routing with real or sim IO, whichever the robot is running as
+   *
+   * @param inputsPipeline reads the IO every loop
+   */
+  public RoutingSubsystem(IOInputsPipeline inputsPipeline) {
+    this(
+        inputsPipeline,
+        Robot.ROBOT_TYPE.isReal() ? createRealRollerIO() : createSimRollerIO(),
+        Robot.ROBOT_TYPE.isReal() ? createRealRollerIO() : createSimRollerIO(),
+        Robot.ROBOT_TYPE.isReal() ? createRealCANRangeIO() : createSimCANRangeIO());
+  }
+
+  /**
+   * Creates the routing with the given IO
+   *
+   * @param inputsPipeline reads the IO every loop
+   * @param primaryRoutingRollers the rollers from the intake up to the last pair
+   * @param shooterIndexRollers the last pair, which index into the shooter
+   * @param canRangeIO the CANrange at the end of the routing
+   */
+  public RoutingSubsystem(
+      IOInputsPipeline inputsPipeline,
+      RollerIO primaryRoutingRollers,
+      RollerIO shooterIndexRollers,
+      CANRangeIO canRangeIO) {
+    super("Routing");
+    this.primaryRoutingRollers = primaryRoutingRollers;
+    this.shooterIndexRollers = shooterIndexRollers;
+    this.canRangeIO = canRangeIO;
+
+    // Inputs are updated and logged by the inputs pipeline
+    inputsPipeline.register(
+        "Routing/Primary Rollers",
+        () -> primaryRoutingRollers.updateInputs(primaryRoutingRollerInputs),
+        primaryRoutingRollerInputs,
+        RollerIO.RATE_POLICY);
+    inputsPipeline.register(
+        "Routing/Shooter Indexing Rollers",
+        () -> shooterIndexRollers.updateInputs(shooterIndexRollerInputs),
+        shooterIndexRollerInputs,
+        RollerIO.RATE_POLICY);
+    inputsPipeline.register(
+        "Routing/CANrange", () -> canRangeIO.updateInputs(canRangeIOInputs), canRangeIOInputs);
+  }
+
+  private static RollerIO createRealRollerIO() {
+    TalonFXConfiguration rollerConfig = new TalonFXConfiguration();
+    return new RollerIOReal(0, rollerConfig);
+  }
+
+  private static CANRangeIO createRealCANRangeIO() {
+    return new CANRangeIOReal(0, new CANrangeConfiguration());
+  }
+
+  public static RollerIO createSimRollerIO() {
+    return createSimRollerIO(
+        new SimpleMotorFeedforward(0, 0), new PIDController(0, 0, 0, SimWorld.SUBSTEP_SECONDS));
   }
 
-  @Override
-  public void periodic() {
-    primaryRoutingRollers.updateInputs(primaryRoutingRollerInputs);
-    Logger.processInputs("Routing/Primary Rollers", primaryRoutingRollerInputs);
+  /**
+   * Creates the sim rollers with the given velocity gains, so they can be tried out in sim
+   *
+   * @param feedforward the velocity feedforward
+   * @param velocityPID the velocity PID, with a period of {@link SimWorld#SUBSTEP_SECONDS}
+   * @return the sim rollers
+   */
+  public static RollerIOSim createSimRollerIO(
+      SimpleMotorFeedforward feedforward, PIDController velocityPID) {
+    // TODO: SET THESE VALUES. Placeholders for now since the sim won't take zeros
+    return new RollerIOSim(
+        0.001,
+        4.0,
+        feedforward,
+        new ProfiledPIDController(0, 0, 0, new Constraints(0, 0), SimWorld.SUBSTEP_SECONDS),
+        velocityPID);
+  }
 
-    shooterIndexRollers.updateInputs(shooterIndexRollerInputs);
-    Logger.processInputs("Routing/Shooter Indexing Rollers", shooterIndexRollerInputs);
+  public static CANRangeIO createSimCANRangeIO() {
+    return new CANRangeIOSim(0, new CANrangeConfiguration());
+  }
 
-    canRangeIO.updateInputs(canRangeIOInputs);
-    Logger.processInputs("Routing/CANrange", canRangeIOInputs);
+  public Command setStateVoltage(Supplier<RoutingState> stateSupplier) {
+    return this.run(
+        () -> {
+          primaryRoutingRollers.setVoltage(stateSupplier.get().primaryRollerVoltage);
+          shooterIndexRollers.setVoltage(stateSupplier.get().shooterIndexRollerVoltage);
+        });
   }
 
   public boolean getCANrangeIsDetected() {
     return canRangeIOInputs.isDetected;
   }
+
+  /** Gets the primary roller sim so a sim can move balls with it. Null on a real robot */
+  public RollerIOSim getPrimaryRollerSim() {
+    return primaryRoutingRollers instanceof RollerIOSim sim ? sim : null;
+  }
+
+  /** Gets the shooter indexing roller sim so a sim can move balls with it. Null on a real robot */
+  public RollerIOSim getShooterIndexRollerSim() {
+    return shooterIndexRollers instanceof RollerIOSim sim ? sim : null;
+  }
+
+  /** Gets the CANrange sim so a sim can move balls past it. Null on a real robot */
+  public CANRangeIOSim getCANrangeSim() {
+    return canRangeIO instanceof CANRangeIOSim sim ? sim : null;
+  }
 }
@@ -1,7 +1,5 @@
 package frc.robot.subsystems;
 
-import org.littletonrobotics.junction.Logger;
-
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
 import edu.wpi.first.math.controller.ArmFeedforward;
 import edu.wpi.first.math.controller.PIDController;
@@ -11,8 +9,8 @@ import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.trajectory.TrapezoidProfile.Constraints;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj2.command.Command;
-import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Robot;
+import frc.robot.sim.SimWorld;
 import frc.robot.subsystems.pivot.PivotIO;
 import frc.robot.subsystems.pivot.PivotIOInputsAutoLogged;
 import frc.robot.subsystems.pivot.PivotIOReal;
@@ -21,59 +19,105 @@ import frc.robot.subsystems.roller.DoubleMotorRollerIOReal;
 import frc.robot.subsystems.roller.DoubleMotorRollerIOSim;
 import frc.robot.subsystems.roller.RollerIO;
 import frc.robot.subsystems.roller.RollerIOInputsAutoLogged;
+import frc.robot.util.IOInputsPipeline;
+import frc.robot.util.ProfiledSubsystem;
 
-public class ShooterSubsystem extends SubsystemBase {
+public class ShooterSubsystem extends ProfiledSubsystem {
 
   private final RollerIO rollerIO;
-  private RollerIOInputsAutoLogged rollerIOInputs;
+  private RollerIOInputsAutoLogged rollerIOInputs = new RollerIOInputsAutoLogged();
 
   private final PivotIO pivotIO;
-  private PivotIOInputsAutoLogged pivotIOInputs;
+  private PivotIOInputsAutoLogged pivotIOInputs = new PivotIOInputsAutoLogged();
 
-  public ShooterSubsystem() {
-    if (Robot.ROBOT_TYPE.isReal()) {
-      // Blank config
-      TalonFXConfiguration rollerConfig = new TalonFXConfiguration();
-      rollerIO = new DoubleMotorRollerIOReal(0, 0, false, rollerConfig);
+  /**
+   * Creates the shooter with real or sim IO, whichever the robot is running as
+   *
+   * @param inputsPipeline reads the IO every loop
+   */
+  public ShooterSubsystem(IOInputsPipeline inputsPipeline) {
+    this(
+        inputsPipeline,
+        Robot.ROBOT_TYPE.isReal() ? createRealRollerIO() : createSimRollerIO(),
+        Robot.ROBOT_TYPE.isReal() ? createRealPivotIO() : createSimPivotIO());
+  }
 
-      TalonFXConfiguration pivotConfig = new TalonFXConfiguration();
-      pivotIO = new PivotIOReal(0, pivotConfig);
-    } else {
-      // TODO
-      rollerIO =
-          new DoubleMotorRollerIOSim(
-              0.001,
-              2.0,
-              new SimpleMotorFeedforward(0, 0),
-              new ProfiledPIDController(0, 0, 0, new Constraints(0, 0)),
-              new PIDController(0, 0, 0));
+  /**
+   * Creates the shooter with the given IO
+   *
+   * @param inputsPipeline reads the IO every loop
+   * @param rollerIO the flywheel rollers
+   * @param pivotIO the hood pivot
+   */
+  public ShooterSubsystem(IOInputsPipeline inputsPipeline, RollerIO rollerIO, PivotIO pivotIO) {
+    super("Shooter");
+    this.rollerIO = rollerIO;
+    this.pivotIO = pivotIO;
 
-      pivotIO =
-          new PivotIOSim(
-              2.0,
-              0.035,
-              Units.inchesToMeters(8.87),
-              // I would figure these out but the mates are broken
-              0,
-              0,
-              new ProfiledPIDController(0, 0, 0, new Constraints(0, 0)),
-              new ArmFeedforward(0, 0, 0));
-    }
+    // Inputs are updated and logged by the inputs pipeline
+    inputsPipeline.register(
+        "Shooter/Pivot",
+        () -> pivotIO.updateInputs(pivotIOInputs),
+        pivotIOInputs,
+        PivotIO.RATE_POLICY);
+    inputsPipeline.register(
+        "Shooter/Rollers",
+        () -> rollerIO.updateInputs(rollerIOInputs),
+        rollerIOInputs,
+        RollerIO.RATE_POLICY);
   }
 
-  @Override
-  public void periodic() {
-      pivotIO.updateInputs(pivotIOInputs);
-      Logger.processInputs("Shooter/Pivot", pivotIOInputs);
+  private static RollerIO createRealRollerIO() {
+    // Blank config
+    TalonFXConfiguration rollerConfig = new TalonFXConfiguration();
+    return new DoubleMotorRollerIOReal(0, 0, false, rollerConfig);
+  }
+
+  private static PivotIO createRealPivotIO() {
+    TalonFXConfiguration pivotConfig = new TalonFXConfiguration();
+    return new PivotIOReal(0, pivotConfig);
+  }
+
+  public static RollerIO createSimRollerIO() {
+    return createSimRollerIO(
+        new SimpleMotorFeedforward(0, 0), new PIDController(0, 0, 0, SimWorld.SUBSTEP_SECONDS));
+  }
+
+  /**
+   * Creates the sim flywheel with the given velocity gains, so they can be tried out in sim
+   *
+   * @param feedforward the velocity feedforward
+   * @param velocityPID the velocity PID, with a period of {@link SimWorld#SUBSTEP_SECONDS}
+   * @return the sim flywheel
+   */
+  public static DoubleMotorRollerIOSim createSimRollerIO(
+      SimpleMotorFeedforward feedforward, PIDController velocityPID) {
+    // TODO
+    return new DoubleMotorRollerIOSim(
+        0.001,
+        2.0,
+        feedforward,
+        new ProfiledPIDController(0, 0, 0, new Constraints(0, 0), SimWorld.SUBSTEP_SECONDS),
+        velocityPID);
+  }
 
-      rollerIO.updateInputs(rollerIOInputs);
-      Logger.processInputs("Shooter/Rollers", rollerIOInputs);
+  public static PivotIO createSimPivotIO() {
+    return new PivotIOSim(
+        2.0,
+        0.035,
+        Units.inchesToMeters(8.87),
+        // I would figure these out but the mates are broken
+        0,
+        0,
+        new ProfiledPIDController(0, 0, 0, new Constraints(0, 0), SimWorld.SUBSTEP_SECONDS),
+        new ArmFeedforward(0, 0, 0));
   }
 
   public Command setPivotAndRoller(Rotation2d angle, double rollerVelocityRotationsPerSecond) {
-    return this.run(() -> {
-        pivotIO.setPositionSetpoint(angle);
-        rollerIO.setVelocitySetpoint(rollerVelocityRotationsPerSecond);
-    });
+    return this.run(
+        () -> {
+          pivotIO.setPositionSetpoint(angle);
+          rollerIO.setVelocitySetpoint(rollerVelocityRotationsPerSecond);
+        });
   }
 }
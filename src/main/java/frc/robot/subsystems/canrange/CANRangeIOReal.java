@@ -1,12 +1,11 @@
 package frc.robot.subsystems.canrange;
 
-import static edu.wpi.first.units.Units.Meters;
-
-import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.CANrangeConfiguration;
 import com.ctre.phoenix6.hardware.CANrange;
 import edu.wpi.first.units.measure.Distance;
+import frc.robot.util.CANBusBudget.SignalTier;
+import frc.robot.util.PhoenixSignals;
 
 public class CANRangeIOReal implements CANRangeIO {
   private final CANrange canrange;
@@ -28,15 +27,16 @@ public class CANRangeIOReal implements CANRangeIO {
 
     canrange.getConfigurator().apply(config);
 
-    BaseStatusSignal.setUpdateFrequencyForAll(50.0, isDetected, distance);
+    // Rates get set by CANBusBudget once everything's registered, which re-enables these
     canrange.optimizeBusUtilization();
+
+    PhoenixSignals.register(canrange.getNetwork(), SignalTier.CONTROL, isDetected, distance);
   }
 
   @Override
   public void updateInputs(CANRangeIOInputs inputs) {
-    BaseStatusSignal.refreshAll(isDetected, distance);
-
-    inputs.distanceMeters = distance.getValue().in(Meters);
+    // Signals are refreshed by PhoenixSignals before this is called
+    inputs.distanceMeters = distance.getValueAsDouble();
     inputs.isDetected = isDetected.getValue();
   }
 }
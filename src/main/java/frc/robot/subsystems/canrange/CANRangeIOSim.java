@@ -1,34 +1,46 @@
 package frc.robot.subsystems.canrange;
 
-import static edu.wpi.first.units.Units.Meters;
-
-import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.CANrangeConfiguration;
-import com.ctre.phoenix6.hardware.CANrange;
-import com.ctre.phoenix6.sim.CANrangeSimState;
-import edu.wpi.first.units.measure.Distance;
+import java.util.Random;
 
+/**
+ * Sim CANrange that just holds whatever distance it's given. Phoenix's own sim runs on the wall
+ * clock, so it can't keep up when the sim is fast forwarded
+ */
 public class CANRangeIOSim implements CANRangeIO {
-  private final CANrange canrange;
-  // Must admit not entirely sure how to use this but i'm going to try to figure it out.
-  private CANrangeSimState simState;
+  // Farther than anything on the robot, so nothing's detected until something sets a distance
+  private static final double NOTHING_DISTANCE_METERS = 2.0;
 
-  private final StatusSignal<Distance> distance;
-  private final StatusSignal<Boolean> isDetected;
+  private final double proximityThresholdMeters;
+  private final double proximityHysteresisMeters;
 
-  public CANRangeIOSim(int deviceId, CANrangeConfiguration config) {
-    canrange = new CANrange(deviceId);
+  private double distanceMeters = NOTHING_DISTANCE_METERS;
+  private boolean isDetected = false;
 
-    distance = canrange.getDistance();
-    isDetected = canrange.getIsDetected();
+  private double noiseStdDevMeters = 0.0;
+  private Random random = null;
 
-    simState = canrange.getSimState();
+  public CANRangeIOSim(int deviceId, CANrangeConfiguration config) {
+    proximityThresholdMeters = config.ProximityParams.ProximityThreshold;
+    proximityHysteresisMeters = config.ProximityParams.ProximityHysteresis;
   }
 
   @Override
   public void updateInputs(CANRangeIOInputs inputs) {
-    inputs.distanceMeters = distance.getValue().in(Meters);
-    inputs.isDetected = isDetected.getValue();
+    double distanceMeters = this.distanceMeters;
+    if (random != null) {
+      distanceMeters += random.nextGaussian() * noiseStdDevMeters;
+    }
+
+    // Same hysteresis the real sensor uses so detection doesn't flicker at the threshold
+    if (distanceMeters < proximityThresholdMeters - proximityHysteresisMeters) {
+      isDetected = true;
+    } else if (distanceMeters > proximityThresholdMeters + proximityHysteresisMeters) {
+      isDetected = false;
+    }
+
+    inputs.distanceMeters = distanceMeters;
+    inputs.isDetected = isDetected;
   }
 
   /**
@@ -37,6 +49,22 @@ public class CANRangeIOSim implements CANRangeIO {
    * @param distanceMeters the simulated distance from sensor to object
    */
   public void setDistance(double distanceMeters) {
-    simState.setDistance(distanceMeters);
+    this.distanceMeters = distanceMeters;
+  }
+
+  /**
+   * Adds gaussian noise to every reading
+   *
+   * @param stdDevMeters how much noise
+   * @param random where the noise comes from. Seed it to get the same noise every run
+   */
+  public void setNoise(double stdDevMeters, Random random) {
+    noiseStdDevMeters = stdDevMeters;
+    this.random = random;
+  }
+
+  /** Makes the sensor see nothing */
+  public void clear() {
+    distanceMeters = NOTHING_DISTANCE_METERS;
   }
 }
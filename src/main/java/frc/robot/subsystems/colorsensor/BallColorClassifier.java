@@ -0,0 +1,80 @@
+package frc.robot.subsystems.colorsensor;
+
+/**
+ * Works out which ball the color sensor is looking at with one table lookup. Normalized red, green
+ * and blue add up to 1, so red and blue alone pin down the color. Those get quantized into a grid
+ * that's filled in ahead of time with whichever calibrated ball color is closest
+ */
+public final class BallColorClassifier {
+  public enum BallColor {
+    NONE,
+    RED,
+    BLUE,
+    // Something's there but it doesn't look like either ball
+    UNKNOWN
+  }
+
+  // TODO: CALIBRATE. These are PLACEHOLDERS guessed from what red and blue cargo usually read, not
+  // from this sensor. Record a log holding each ball in front of the sensor and run
+  // ./gradlew calibrateColors, which prints all three of these to paste in
+
+  // Normalized {red, green, blue} of each ball right in front of the sensor
+  public static final double[] RED_BALL = {0.52, 0.34, 0.14};
+  public static final double[] BLUE_BALL = {0.16, 0.39, 0.45};
+
+  // Readings further than this from both balls are UNKNOWN
+  private static final double MAX_DISTANCE = 0.12;
+
+  /** Proximity below this means nothing's in front of the sensor */
+  public static final int MIN_PROXIMITY = 200;
+
+  private static final int BINS = 64;
+  private static final BallColor[] TABLE = new BallColor[BINS * BINS];
+
+  static {
+    for (int redBin = 0; redBin < BINS; redBin++) {
+      for (int blueBin = 0; blueBin < BINS; blueBin++) {
+        // Center of the bin
+        double red = (redBin + 0.5) / BINS;
+        double blue = (blueBin + 0.5) / BINS;
+        double green = 1.0 - red - blue;
+
+        BallColor color = BallColor.UNKNOWN;
+        if (green >= 0.0) {
+          double toRed = distance(red, green, blue, RED_BALL);
+          double toBlue = distance(red, green, blue, BLUE_BALL);
+          if (Math.min(toRed, toBlue) <= MAX_DISTANCE) {
+            color = toRed < toBlue ? BallColor.RED : BallColor.BLUE;
+          }
+        }
+        TABLE[redBin * BINS + blueBin] = color;
+      }
+    }
+  }
+
+  private BallColorClassifier() {}
+
+  private static double distance(double red, double green, double blue, double[] reference) {
+    return Math.sqrt(
+        Math.pow(red - reference[0], 2)
+            + Math.pow(green - reference[1], 2)
+            + Math.pow(blue - reference[2], 2));
+  }
+
+  private static int bin(double value) {
+    return Math.min(BINS - 1, Math.max(0, (int) (value * BINS)));
+  }
+
+  /**
+   * Classifies a reading. Doesn't allocate
+   *
+   * @param red normalized red
+   * @param blue normalized blue
+   * @param proximity the sensor's proximity reading
+   * @return the ball that's there, if any
+   */
+  public static BallColor classify(double red, double blue, int proximity) {
+    if (proximity < MIN_PROXIMITY) return BallColor.NONE;
+    return TABLE[bin(red) * BINS + bin(blue)];
+  }
+}
@@ -5,8 +5,22 @@ import org.littletonrobotics.junction.AutoLog;
 public interface ColorSensorIO {
   @AutoLog
   public static class ColorSensorIOInputs {
-    /** The color that the sensor sees, as a hex code */
-    public String color = "";
+    /** The color that the sensor sees, normalized so red, green and blue add up to 1 */
+    public double red = 0.0;
+    public double green = 0.0;
+    public double blue = 0.0;
+
+    /** Raw infrared channel */
+    public int ir = 0;
+
+    /** Proximity from 0 to 2047, higher is closer */
+    public int proximity = 0;
+
+    /** How long ago the newest reading was taken. Infinite if there hasn't been one */
+    public double sampleAgeSeconds = 0.0;
+
+    /** How many reads have failed since boot */
+    public long readFailures = 0;
   }
 
   /**
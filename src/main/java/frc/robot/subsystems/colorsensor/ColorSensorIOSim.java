@@ -0,0 +1,77 @@
+package frc.robot.subsystems.colorsensor;
+
+import java.util.Random;
+
+/** Sim color sensor that reports whatever color and proximity it's given */
+public class ColorSensorIOSim implements ColorSensorIO {
+  private double red = 0.0;
+  private double green = 0.0;
+  private double blue = 0.0;
+  private int proximity = 0;
+
+  private double noiseStdDev = 0.0;
+  private Random random = null;
+
+  @Override
+  public void updateInputs(ColorSensorIOInputs inputs) {
+    double red = this.red;
+    double green = this.green;
+    double blue = this.blue;
+    // Noise goes on each channel, then it gets normalized again like the real sensor does
+    if (random != null && red + green + blue > 0.0) {
+      red = Math.max(0.0, red + random.nextGaussian() * noiseStdDev);
+      green = Math.max(0.0, green + random.nextGaussian() * noiseStdDev);
+      blue = Math.max(0.0, blue + random.nextGaussian() * noiseStdDev);
+      double sum = Math.max(1e-9, red + green + blue);
+      red /= sum;
+      green /= sum;
+      blue /= sum;
+    }
+
+    inputs.red = red;
+    inputs.green = green;
+    inputs.blue = blue;
+    inputs.ir = 0;
+    inputs.proximity = proximity;
+    inputs.sampleAgeSeconds = 0.0;
+    inputs.readFailures = 0;
+  }
+
+  /**
+   * Sets what the sensor sees. The color gets normalized like the real sensor's
+   *
+   * @param red red channel
+   * @param green green channel
+   * @param blue blue channel
+   * @param proximity from 0 to 2047, higher is closer
+   */
+  public void set(double red, double green, double blue, int proximity) {
+    double sum = red + green + blue;
+    if (sum > 0.0) {
+      this.red = red / sum;
+      this.green = green / sum;
+      this.blue = blue / sum;
+    } else {
+      this.red = 0.0;
+      this.green = 0.0;
+      this.blue = 0.0;
+    }
+    this.proximity = proximity;
+  }
+
+  /**
+   * Adds gaussian noise to each color channel of every reading
+   *
+   * @param stdDev how much noise, in normalized color
+   * @param random where the noise comes from. Seed it to get the same noise every run
+   */
+  public void setNoise(double stdDev, Random random) {
+    noiseStdDev = stdDev;
+    this.random = random;
+  }
+
+  /** Makes the sensor see nothing */
+  public void clear() {
+    set(0.0, 0.0, 0.0, 0);
+  }
+}
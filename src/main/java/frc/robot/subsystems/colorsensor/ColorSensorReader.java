@@ -0,0 +1,124 @@
+package frc.robot.subsystems.colorsensor;
+
+import com.revrobotics.ColorSensorV3;
+import com.revrobotics.ColorSensorV3.RawColor;
+import edu.wpi.first.wpilibj.RobotController;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background thread that polls a color sensor over I2C so the main loop never has to. The newest
+ * reading goes in a single-writer slot guarded by a sequence number (a seqlock): the reader thread
+ * is the only writer, and anyone can copy the slot out without locking by retrying if a write
+ * happened mid-copy
+ */
+class ColorSensorReader extends Thread {
+  /** A copy of one reading */
+  static final class Sample {
+    int red = 0;
+    int green = 0;
+    int blue = 0;
+    int ir = 0;
+    int proximity = 0;
+    // FPGA time the read finished. 0 if there hasn't been a good read yet
+    long timestampMicros = 0;
+  }
+
+  private final ColorSensorV3 sensor;
+  private final long periodMillis;
+
+  // Odd while the slot is being written
+  private volatile long sequence = 0;
+  private int red = 0;
+  private int green = 0;
+  private int blue = 0;
+  private int ir = 0;
+  private int proximity = 0;
+  private long timestampMicros = 0;
+
+  private final AtomicLong readFailures = new AtomicLong();
+
+  /**
+   * Creates a new reader. Call {@link #start()} to start polling
+   *
+   * @param sensor the sensor to read
+   * @param periodMillis how often to read. Should match the sensor's measurement rate
+   */
+  ColorSensorReader(ColorSensorV3 sensor, long periodMillis) {
+    this.sensor = sensor;
+    this.periodMillis = periodMillis;
+    setName("ColorSensorReader");
+    setDaemon(true);
+  }
+
+  @Override
+  public void run() {
+    while (true) {
+      try {
+        Thread.sleep(periodMillis);
+      } catch (InterruptedException e) {
+        return;
+      }
+
+      RawColor color;
+      int newProximity;
+      try {
+        color = sensor.getRawColor();
+        newProximity = sensor.getProximity();
+      } catch (RuntimeException e) {
+        readFailures.incrementAndGet();
+        continue;
+      }
+      // Failed I2C reads come back as all zeros, and a lit sensor never sees nothing on every
+      // channel
+      if (color.red == 0 && color.green == 0 && color.blue == 0 && color.ir == 0) {
+        readFailures.incrementAndGet();
+        continue;
+      }
+
+      long seq = sequence;
+      sequence = seq + 1;
+      // Keep the field writes after the sequence goes odd
+      VarHandle.storeStoreFence();
+      red = color.red;
+      green = color.green;
+      blue = color.blue;
+      ir = color.ir;
+      proximity = newProximity;
+      timestampMicros = RobotController.getFPGATime();
+      // Volatile write, so the fields are visible before the sequence goes even again
+      sequence = seq + 2;
+    }
+  }
+
+  /**
+   * Copies the newest reading. Never blocks on I2C
+   *
+   * @param out the sample to copy into
+   */
+  void getLatest(Sample out) {
+    while (true) {
+      long seq = sequence;
+      if ((seq & 1) != 0) {
+        // Mid-write, which only takes a few nanoseconds
+        Thread.onSpinWait();
+        continue;
+      }
+
+      out.red = red;
+      out.green = green;
+      out.blue = blue;
+      out.ir = ir;
+      out.proximity = proximity;
+      out.timestampMicros = timestampMicros;
+
+      // Keep the field reads before the recheck
+      VarHandle.loadLoadFence();
+      if (sequence == seq) return;
+    }
+  }
+
+  long getReadFailures() {
+    return readFailures.get();
+  }
+}
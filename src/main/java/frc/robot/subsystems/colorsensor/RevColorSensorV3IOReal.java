@@ -1,11 +1,23 @@
 package frc.robot.subsystems.colorsensor;
 
 import com.revrobotics.ColorSensorV3;
+import com.revrobotics.ColorSensorV3.ColorSensorMeasurementRate;
+import com.revrobotics.ColorSensorV3.ColorSensorResolution;
+import com.revrobotics.ColorSensorV3.GainFactor;
+import com.revrobotics.ColorSensorV3.ProximitySensorMeasurementRate;
+import com.revrobotics.ColorSensorV3.ProximitySensorResolution;
 import edu.wpi.first.wpilibj.I2C;
+import edu.wpi.first.wpilibj.RobotController;
+import frc.robot.subsystems.colorsensor.ColorSensorReader.Sample;
 
 public class RevColorSensorV3IOReal implements ColorSensorIO {
+  // 16 bit color takes 25ms to integrate, so there's no point reading faster
+  private static final long READ_PERIOD_MILLIS = 25;
 
   private final ColorSensorV3 sensor;
+  // Onboard I2C can take milliseconds or hang, so it's read on its own thread
+  private final ColorSensorReader reader;
+  private final Sample sample = new Sample();
 
   /**
    * Creates a new Rev Color Sensor V3
@@ -14,10 +26,39 @@ public class RevColorSensorV3IOReal implements ColorSensorIO {
    */
   public RevColorSensorV3IOReal(I2C.Port port) {
     sensor = new ColorSensorV3(port);
+    sensor.configureColorSensor(
+        ColorSensorResolution.kColorSensorRes16bit,
+        ColorSensorMeasurementRate.kColorRate25ms,
+        GainFactor.kGain3x);
+    sensor.configureProximitySensor(
+        ProximitySensorResolution.kProxRes11bit, ProximitySensorMeasurementRate.kProxRate25ms);
+
+    reader = new ColorSensorReader(sensor, READ_PERIOD_MILLIS);
+    reader.start();
   }
 
   @Override
   public void updateInputs(ColorSensorIOInputs inputs) {
-    inputs.color = sensor.getColor().toHexString();
+    reader.getLatest(sample);
+
+    // Normalized the same way ColorSensorV3.getColor() does it
+    double total = sample.red + sample.green + sample.blue;
+    if (total > 0.0) {
+      inputs.red = sample.red / total;
+      inputs.green = sample.green / total;
+      inputs.blue = sample.blue / total;
+    } else {
+      inputs.red = 0.0;
+      inputs.green = 0.0;
+      inputs.blue = 0.0;
+    }
+    inputs.ir = sample.ir;
+    inputs.proximity = sample.proximity;
+
+    inputs.sampleAgeSeconds =
+        sample.timestampMicros == 0
+            ? Double.POSITIVE_INFINITY
+            : (RobotController.getFPGATime() - sample.timestampMicros) / 1e6;
+    inputs.readFailures = reader.getReadFailures();
   }
 }
@@ -1,5 +1,6 @@
 package frc.robot.subsystems.elevator;
 
+import frc.robot.util.InputRatePolicy;
 import org.littletonrobotics.junction.AutoLog;
 
 public interface ElevatorIO {
@@ -18,8 +19,36 @@ public interface ElevatorIO {
     public double followerSupplyCurrentAmps = 0.0;
     public double followerVoltage = 0.0;
     public double followerTempC = 0.0;
+
+    // FPGA time (seconds) the position and velocity frames were received
+    public double leaderPositionTimestamp = 0.0;
+    public double leaderVelocityTimestamp = 0.0;
+    public double followerPositionTimestamp = 0.0;
+    public double followerVelocityTimestamp = 0.0;
+    // Leader position pushed forward by velocity to when the inputs were read. Same as position if
+    // the IO can't compensate
+    public double leaderLatencyCompensatedPositionMeters = 0.0;
+
+    // Leader samples taken faster than the loop since the last update. Empty if not sampling
+    public double[] sampleTimestamps = new double[] {};
+    public double[] leaderPositionSamplesMeters = new double[] {};
+    public double[] leaderVelocitySamplesMetersPerSec = new double[] {};
+    public double[] leaderStatorCurrentSamplesAmps = new double[] {};
   }
 
+  // Temperatures and electrical stuff are only logged, so they don't need every loop. Positions and
+  // velocities always update since the subsystem controls off them
+  public static final InputRatePolicy RATE_POLICY =
+      InputRatePolicy.forClass(ElevatorIOInputs.class)
+          .everyNth(50, "leaderTempC", "followerTempC")
+          .onChange(
+              0.25,
+              "leaderStatorCurrentAmps",
+              "leaderSupplyCurrentAmps",
+              "followerStatorCurrentAmps",
+              "followerSupplyCurrentAmps")
+          .onChange(0.05, "leaderVoltage", "followerVoltage");
+
   /**
    * Updates the passed-in inputs with the motors' data
    *
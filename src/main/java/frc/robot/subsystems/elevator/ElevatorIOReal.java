@@ -6,55 +6,93 @@ import com.ctre.phoenix6.controls.Follower;
 import com.ctre.phoenix6.controls.MotionMagicVoltage;
 import com.ctre.phoenix6.controls.VoltageOut;
 import com.ctre.phoenix6.hardware.TalonFX;
+import edu.wpi.first.units.measure.Angle;
+import edu.wpi.first.units.measure.AngularVelocity;
 import edu.wpi.first.units.measure.Current;
 import edu.wpi.first.units.measure.Temperature;
 import edu.wpi.first.units.measure.Voltage;
+import frc.robot.util.CANBusBudget.SignalTier;
+import frc.robot.util.HighFrequencySampler;
+import frc.robot.util.HighFrequencySampler.SampleQueue;
+import frc.robot.util.PhoenixSignals;
+import frc.robot.util.TalonFXControlFilter;
 
 public class ElevatorIOReal implements ElevatorIO {
   private TalonFX leader = new TalonFX(0, "*");
   private TalonFX follower = new TalonFX(0, "*");
+  // Default command sets the same setpoint every loop
+  private final TalonFXControlFilter control = new TalonFXControlFilter(leader);
 
   // Conversion from angle to distance happens in sensor to mechanism ratio
-  private final BaseStatusSignal leaderPositionMeters = leader.getPosition();
-  private final BaseStatusSignal leaderVelocityMetersPerSec = leader.getVelocity();
+  private final StatusSignal<Angle> leaderPositionMeters = leader.getPosition();
+  private final StatusSignal<AngularVelocity> leaderVelocityMetersPerSec = leader.getVelocity();
   private final StatusSignal<Voltage> leaderVoltage = leader.getMotorVoltage();
   private final StatusSignal<Current> leaderStatorCurrent = leader.getStatorCurrent();
   private final StatusSignal<Current> leaderSupplyCurrent = leader.getSupplyCurrent();
   private final StatusSignal<Temperature> leaderTemp = leader.getDeviceTemp();
 
-  private final BaseStatusSignal followerPositionMeters = follower.getPosition();
-  private final BaseStatusSignal followerVelocityMetersPerSec = follower.getVelocity();
+  private final StatusSignal<Angle> followerPositionMeters = follower.getPosition();
+  private final StatusSignal<AngularVelocity> followerVelocityMetersPerSec = follower.getVelocity();
   private final StatusSignal<Voltage> followerVoltage = follower.getMotorVoltage();
   private final StatusSignal<Current> followerStatorCurrent = follower.getStatorCurrent();
   private final StatusSignal<Current> followerSupplyCurrent = follower.getSupplyCurrent();
   private final StatusSignal<Temperature> followerTemp = follower.getDeviceTemp();
 
+  private SampleQueue sampleQueue = null;
+
   private VoltageOut voltageOut = new VoltageOut(0.0).withEnableFOC(true);
   private MotionMagicVoltage motionMagicVoltage = new MotionMagicVoltage(0.0).withEnableFOC(true);
 
+  /** Creates a new elevator without high frequency samples */
   public ElevatorIOReal() {
+    this(false);
+  }
+
+  /**
+   * Creates a new elevator
+   *
+   * @param highFrequencySampling whether to sample the leader's position, velocity and current with
+   *     the {@link HighFrequencySampler}. It's a lot of bus time, so only if it's needed
+   */
+  public ElevatorIOReal(boolean highFrequencySampling) {
     // In here is where we would do configs but i'm lazy
 
     // On a real robot these would all have different ids and you would put it here
     follower.setControl(new Follower(0, false));
-  }
 
-  @Override
-  public void updateInputs(ElevatorIOInputs inputs) {
-    BaseStatusSignal.refreshAll(
+    // Both motors are on the same bus
+    PhoenixSignals.register(
+        leader.getNetwork(),
+        SignalTier.CONTROL,
         leaderPositionMeters,
         leaderVelocityMetersPerSec,
+        followerPositionMeters,
+        followerVelocityMetersPerSec);
+    PhoenixSignals.register(
+        leader.getNetwork(),
+        SignalTier.DIAGNOSTIC,
         leaderVoltage,
         leaderStatorCurrent,
         leaderSupplyCurrent,
-        leaderTemp,
-        followerPositionMeters,
-        followerVelocityMetersPerSec,
         followerVoltage,
         followerStatorCurrent,
-        followerSupplyCurrent,
-        followerTemp);
+        followerSupplyCurrent);
+    PhoenixSignals.register(leader.getNetwork(), SignalTier.THERMAL, leaderTemp, followerTemp);
+
+    if (highFrequencySampling) {
+      sampleQueue =
+          HighFrequencySampler.getInstance()
+              .register(
+                  leader.getNetwork(),
+                  leaderPositionMeters,
+                  leaderVelocityMetersPerSec,
+                  leaderStatorCurrent);
+    }
+  }
 
+  @Override
+  public void updateInputs(ElevatorIOInputs inputs) {
+    // Signals are refreshed by PhoenixSignals before this is called
     inputs.leaderPositionMeters = leaderPositionMeters.getValueAsDouble();
     inputs.leaderVelocityMetersPerSec = leaderVelocityMetersPerSec.getValueAsDouble();
     inputs.leaderVoltage = leaderVoltage.getValueAsDouble();
@@ -68,16 +106,33 @@ public class ElevatorIOReal implements ElevatorIO {
     inputs.followerStatorCurrentAmps = followerStatorCurrent.getValueAsDouble();
     inputs.followerSupplyCurrentAmps = followerSupplyCurrent.getValueAsDouble();
     inputs.followerTempC = followerTemp.getValueAsDouble();
+
+    inputs.leaderPositionTimestamp = PhoenixSignals.getFPGATimestamp(leaderPositionMeters);
+    inputs.leaderVelocityTimestamp = PhoenixSignals.getFPGATimestamp(leaderVelocityMetersPerSec);
+    inputs.followerPositionTimestamp = PhoenixSignals.getFPGATimestamp(followerPositionMeters);
+    inputs.followerVelocityTimestamp =
+        PhoenixSignals.getFPGATimestamp(followerVelocityMetersPerSec);
+    inputs.leaderLatencyCompensatedPositionMeters =
+        BaseStatusSignal.getLatencyCompensatedValueAsDouble(
+            leaderPositionMeters, leaderVelocityMetersPerSec);
+
+    if (sampleQueue != null) {
+      double[][] samples = sampleQueue.drain();
+      inputs.sampleTimestamps = samples[0];
+      inputs.leaderPositionSamplesMeters = samples[1];
+      inputs.leaderVelocitySamplesMetersPerSec = samples[2];
+      inputs.leaderStatorCurrentSamplesAmps = samples[3];
+    }
   }
 
   @Override
   public void setPositionSetpoint(double positionMeters) {
-    leader.setControl(motionMagicVoltage.withPosition(positionMeters));
+    control.setControl(motionMagicVoltage.withPosition(positionMeters));
   }
 
   @Override
   public void setVoltage(double voltage) {
-    leader.setControl(voltageOut.withOutput(voltage));
+    control.setControl(voltageOut.withOutput(voltage));
   }
 
   @Override
@@ -5,34 +5,79 @@ import edu.wpi.first.math.controller.ProfiledPIDController;
 import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.math.trajectory.TrapezoidProfile.Constraints;
 import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.simulation.ElevatorSim;
+import frc.robot.sim.SimWorld;
 
-public class ElevatorIOSim implements ElevatorIO {
+public class ElevatorIOSim implements ElevatorIO, SimWorld.Mechanism {
   // Technically x44 but DCmotor doesn't have it
+  private static final DCMotor MOTORS = DCMotor.getKrakenX60Foc(2);
+  private static final double CARRIAGE_MASS_KG = Units.lbsToKilograms(12.399);
+  // What should drum radius be?????? Its a beltivator. Guessing an inch until someone
+  // measures the pulley since the sim won't take zero
+  private static final double DRUM_RADIUS_METERS = Units.inchesToMeters(1.0);
+
   private ElevatorSim physicsSim =
       new ElevatorSim(
-          DCMotor.getKrakenX60Foc(2), 
+          MOTORS, 
           ElevatorSubsystem.GEAR_RATIO, 
-          Units.lbsToKilograms(12.399), 
-          // What should drum radius be?????? Its a beltivator
-          0.0, 
+          CARRIAGE_MASS_KG, 
+          DRUM_RADIUS_METERS, 
           0.0, 
           Units.inchesToMeters(35.126), 
           true, 
           0.0);
 
-  // TODO: TUNE IN SIM
-  private ElevatorFeedforward feedforward = new ElevatorFeedforward(0, 0, 0);
-  private ProfiledPIDController pid =
-      new ProfiledPIDController(0, 0, 0, new Constraints(5.0, 10.0));
+  private final ElevatorFeedforward feedforward;
+  // Runs every substep like the TalonFX's onboard loop
+  private final ProfiledPIDController pid;
 
   private double currentAppliedVoltage = 0.0;
 
-  public ElevatorIOSim() {}
+  // Whether the emulated TalonFX is holding the setpoint or just applying a voltage
+  private boolean closedLoop = false;
+  private double requestedVoltage = 0.0;
+  private double positionSetpointMeters = 0.0;
+
+  public ElevatorIOSim() {
+    // TODO: TUNE IN SIM. kG and kV are worked out from the motor model so the sim gets to its
+    // setpoints, kP is a guess
+    this(
+        new ProfiledPIDController(40.0, 0, 0, new Constraints(5.0, 10.0), SimWorld.SUBSTEP_SECONDS),
+        new ElevatorFeedforward(0, 0.3, 2.3));
+  }
+
+  /**
+   * Creates the sim elevator with the given gains, so they can be tried out in sim
+   *
+   * @param pid the position PID in meters, with a period of {@link SimWorld#SUBSTEP_SECONDS}
+   * @param feedforward the feedforward
+   */
+  public ElevatorIOSim(ProfiledPIDController pid, ElevatorFeedforward feedforward) {
+    this.pid = pid;
+    this.feedforward = feedforward;
+    SimWorld.add(this);
+  }
+
+  /**
+   * Works out the feedforward from the plant. kG holds the carriage up, kV cancels the motors' back
+   * EMF and kA accelerates the carriage
+   *
+   * @return the feedforward in meters
+   */
+  public static ElevatorFeedforward getModelFeedforward() {
+    // Volts per newton on the carriage
+    double voltsPerForce =
+        MOTORS.rOhms * DRUM_RADIUS_METERS / (MOTORS.KtNMPerAmp * ElevatorSubsystem.GEAR_RATIO);
+    return new ElevatorFeedforward(
+        0.0,
+        CARRIAGE_MASS_KG * 9.8 * voltsPerForce,
+        ElevatorSubsystem.GEAR_RATIO / (DRUM_RADIUS_METERS * MOTORS.KvRadPerSecPerVolt),
+        CARRIAGE_MASS_KG * voltsPerForce);
+  }
 
   @Override
   public void updateInputs(ElevatorIOInputs inputs) {
-    physicsSim.update(0.02);
     inputs.leaderPositionMeters = physicsSim.getPositionMeters();
     inputs.leaderVoltage = currentAppliedVoltage;
     inputs.leaderStatorCurrentAmps = physicsSim.getCurrentDrawAmps();
@@ -46,18 +91,36 @@ public class ElevatorIOSim implements ElevatorIO {
     inputs.followerVelocityMetersPerSec = inputs.leaderVelocityMetersPerSec;
     inputs.followerSupplyCurrentAmps = Double.NEGATIVE_INFINITY;
     inputs.followerTempC = Double.NEGATIVE_INFINITY;
+
+    // No latency in sim
+    inputs.leaderPositionTimestamp = Timer.getFPGATimestamp();
+    inputs.leaderVelocityTimestamp = inputs.leaderPositionTimestamp;
+    inputs.followerPositionTimestamp = inputs.leaderPositionTimestamp;
+    inputs.followerVelocityTimestamp = inputs.leaderPositionTimestamp;
+    inputs.leaderLatencyCompensatedPositionMeters = inputs.leaderPositionMeters;
   }
 
   @Override
   public void setVoltage(double voltage) {
-    physicsSim.setInputVoltage(voltage);
+    closedLoop = false;
+    requestedVoltage = voltage;
   }
 
   @Override
   public void setPositionSetpoint(double positionMeters) {
-    setVoltage(
-        pid.calculate(physicsSim.getPositionMeters(), positionMeters)
-            + feedforward.calculate(pid.getSetpoint().velocity));
+    closedLoop = true;
+    positionSetpointMeters = positionMeters;
+  }
+
+  @Override
+  public void substep(double dtSeconds) {
+    currentAppliedVoltage =
+        closedLoop
+            ? pid.calculate(physicsSim.getPositionMeters(), positionSetpointMeters)
+                + feedforward.calculate(pid.getSetpoint().velocity)
+            : requestedVoltage;
+    physicsSim.setInputVoltage(currentAppliedVoltage);
+    physicsSim.update(dtSeconds);
   }
 
   @Override
@@ -7,14 +7,15 @@ import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.units.measure.Distance;
 import edu.wpi.first.wpilibj2.command.Command;
-import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Robot;
+import frc.robot.util.IOInputsPipeline;
+import frc.robot.util.ProfiledSubsystem;
 import java.util.function.DoubleSupplier;
 import java.util.function.Supplier;
 import org.littletonrobotics.junction.AutoLogOutput;
-import org.littletonrobotics.junction.Logger;
+import org.littletonrobotics.junction.networktables.LoggedNetworkBoolean;
 
-public class ElevatorSubsystem extends SubsystemBase {
+public class ElevatorSubsystem extends ProfiledSubsystem {
   public static final double GEAR_RATIO = 41 / 11; // ~ 3.82/1
   public static final double EXTENSION_TOLERANCE_METERS = Units.inchesToMeters(2);
 
@@ -43,18 +44,35 @@ public class ElevatorSubsystem extends SubsystemBase {
   @AutoLogOutput(key = "Elevator/Setpoint")
   private double setpointMeters = 0.0;
 
-  public ElevatorSubsystem() {
-    if (Robot.ROBOT_TYPE.isReal()) {
-      io = new ElevatorIOReal();
-    } else {
-      io = new ElevatorIOSim();
-    }
+  // Check extension against where the elevator is now rather than where it was when the frame was
+  // sent. Turn off from the dashboard to use the newest high frequency sample instead
+  private final LoggedNetworkBoolean useLatencyCompensation =
+      new LoggedNetworkBoolean("/Tuning/Elevator/Use Latency Compensation", true);
+
+  /**
+   * Creates the elevator with real or sim IO, whichever the robot is running as
+   *
+   * @param inputsPipeline reads the IO every loop
+   */
+  public ElevatorSubsystem(IOInputsPipeline inputsPipeline) {
+    // Sampled fast on the real thing to see the carriage move between loops
+    this(
+        inputsPipeline, Robot.ROBOT_TYPE.isReal() ? new ElevatorIOReal(true) : new ElevatorIOSim());
   }
 
-  @Override
-  public void periodic() {
-    io.updateInputs(inputs);
-    Logger.processInputs("Elevator", inputs);
+  /**
+   * Creates the elevator with the given IO
+   *
+   * @param inputsPipeline reads the IO every loop
+   * @param io the elevator's motors
+   */
+  public ElevatorSubsystem(IOInputsPipeline inputsPipeline, ElevatorIO io) {
+    super("Elevator");
+    this.io = io;
+
+    // Inputs are updated and logged by the inputs pipeline
+    inputsPipeline.register(
+        "Elevator", () -> io.updateInputs(inputs), inputs, ElevatorIO.RATE_POLICY);
   }
 
   public Command setPositionSetpoint(DoubleSupplier positionSetpoint) {
@@ -74,7 +92,24 @@ public class ElevatorSubsystem extends SubsystemBase {
   }
 
   public boolean atExtension(double setpointMeters) {
-    return MathUtil.isNear(setpointMeters, inputs.leaderPositionMeters, EXTENSION_TOLERANCE_METERS);
+    return MathUtil.isNear(setpointMeters, getPositionMeters(), EXTENSION_TOLERANCE_METERS);
+  }
+
+  /**
+   * Gets the elevator's position. Latency compensated if that's on, otherwise the newest high
+   * frequency sample if there is one
+   *
+   * @return the leader's position in meters
+   */
+  public double getPositionMeters() {
+    if (useLatencyCompensation.get()) {
+      return inputs.leaderLatencyCompensatedPositionMeters;
+    }
+
+    int samples = inputs.leaderPositionSamplesMeters.length;
+    return samples > 0
+        ? inputs.leaderPositionSamplesMeters[samples - 1]
+        : inputs.leaderPositionMeters;
   }
 
   @AutoLogOutput(key = "Elevator/At Extension")
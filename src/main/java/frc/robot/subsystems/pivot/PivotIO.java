@@ -1,19 +1,41 @@
 package frc.robot.subsystems.pivot;
 
 import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.util.InputRatePolicy;
 import org.littletonrobotics.junction.AutoLog;
 
 public interface PivotIO {
   @AutoLog
   public static class PivotIOInputs {
-    public Rotation2d position = new Rotation2d();
+    public double positionRotations = 0.0;
     public double angularVelocityRotationsPerSecond = 0.0;
     public double voltage = 0.0;
     public double statorCurrentAmps = 0.0;
     public double supplyCurrentAmps = 0.0;
     public double tempC = 0.0;
+
+    // FPGA time (seconds) the position and velocity frames were received
+    public double positionTimestamp = 0.0;
+    public double velocityTimestamp = 0.0;
+    // Position pushed forward by velocity to when the inputs were read. Same as position if the IO
+    // can't compensate
+    public double latencyCompensatedPositionRotations = 0.0;
+
+    // Samples taken faster than the loop since the last update. Empty if not sampling
+    public double[] sampleTimestamps = new double[] {};
+    public double[] positionSamplesRotations = new double[] {};
+    public double[] velocitySamplesRotationsPerSecond = new double[] {};
+    public double[] statorCurrentSamplesAmps = new double[] {};
   }
 
+  // Only temperature and supply side are slowed down. Stator current stays every loop for anything
+  // detecting stalls off it
+  public static final InputRatePolicy RATE_POLICY =
+      InputRatePolicy.forClass(PivotIOInputs.class)
+          .everyNth(50, "tempC")
+          .onChange(0.25, "supplyCurrentAmps")
+          .onChange(0.05, "voltage");
+
   /**
    * Updates the passed-in inputs with the motor's data
    *
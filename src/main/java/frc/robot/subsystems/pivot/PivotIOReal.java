@@ -1,7 +1,5 @@
 package frc.robot.subsystems.pivot;
 
-import static edu.wpi.first.units.Units.RotationsPerSecond;
-
 import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
@@ -14,9 +12,16 @@ import edu.wpi.first.units.measure.AngularVelocity;
 import edu.wpi.first.units.measure.Current;
 import edu.wpi.first.units.measure.Temperature;
 import edu.wpi.first.units.measure.Voltage;
+import frc.robot.util.CANBusBudget.SignalTier;
+import frc.robot.util.HighFrequencySampler;
+import frc.robot.util.HighFrequencySampler.SampleQueue;
+import frc.robot.util.PhoenixSignals;
+import frc.robot.util.TalonFXControlFilter;
 
 public class PivotIOReal implements PivotIO {
   private final TalonFX motor;
+  // Default commands set the same setpoint every loop
+  private final TalonFXControlFilter control;
 
   private final StatusSignal<Angle> position;
   private final StatusSignal<AngularVelocity> velocity;
@@ -25,19 +30,34 @@ public class PivotIOReal implements PivotIO {
   private final StatusSignal<Current> supplyCurrent;
   private final StatusSignal<Temperature> temperature;
 
+  private SampleQueue sampleQueue = null;
+
   private VoltageOut voltageOut = new VoltageOut(0.0).withEnableFOC(true);
   private PositionVoltage positionVoltage = new PositionVoltage(0.0).withEnableFOC(true);
 
   private Rotation2d setpoint = Rotation2d.kZero;
 
   /**
-   * Creates a new pivot with a TalonFX-controlled motor
+   * Creates a new pivot with a TalonFX-controlled motor, without high frequency samples
    *
    * @param motorId the ID of the motor on the CAN bus
    * @param config the motor's configuration
    */
   public PivotIOReal(int motorId, TalonFXConfiguration config) {
+    this(motorId, config, false);
+  }
+
+  /**
+   * Creates a new pivot with a TalonFX-controlled motor
+   *
+   * @param motorId the ID of the motor on the CAN bus
+   * @param config the motor's configuration
+   * @param highFrequencySampling whether to sample position, velocity and current with the {@link
+   *     HighFrequencySampler}. It's a lot of bus time, so only for pivots that need it
+   */
+  public PivotIOReal(int motorId, TalonFXConfiguration config, boolean highFrequencySampling) {
     motor = new TalonFX(motorId);
+    control = new TalonFXControlFilter(motor);
     motor.getConfigurator().apply(config);
 
     position = motor.getPosition();
@@ -47,38 +67,59 @@ public class PivotIOReal implements PivotIO {
     supplyCurrent = motor.getSupplyCurrent();
     temperature = motor.getDeviceTemp();
 
-    BaseStatusSignal.setUpdateFrequencyForAll(
-        50.0, position, velocity, voltage, statorCurrent, supplyCurrent, temperature);
+    // Rates get set by CANBusBudget once everything's registered, which re-enables these
     motor.optimizeBusUtilization();
+
+    PhoenixSignals.register(motor.getNetwork(), SignalTier.CONTROL, position, velocity);
+    PhoenixSignals.register(
+        motor.getNetwork(), SignalTier.DIAGNOSTIC, voltage, statorCurrent, supplyCurrent);
+    PhoenixSignals.register(motor.getNetwork(), SignalTier.THERMAL, temperature);
+
+    if (highFrequencySampling) {
+      sampleQueue =
+          HighFrequencySampler.getInstance()
+              .register(motor.getNetwork(), position, velocity, statorCurrent);
+    }
   }
 
   @Override
   public void updateInputs(PivotIOInputs inputs) {
-    BaseStatusSignal.refreshAll(
-        position, velocity, voltage, statorCurrent, supplyCurrent, temperature);
-
-    inputs.position = new Rotation2d(position.getValue());
-    inputs.angularVelocityRotationsPerSecond = velocity.getValue().in(RotationsPerSecond);
+    // Signals are refreshed by PhoenixSignals before this is called
+    inputs.positionRotations = position.getValueAsDouble();
+    inputs.angularVelocityRotationsPerSecond = velocity.getValueAsDouble();
     inputs.voltage = voltage.getValueAsDouble();
     inputs.statorCurrentAmps = statorCurrent.getValueAsDouble();
     inputs.supplyCurrentAmps = supplyCurrent.getValueAsDouble();
     inputs.tempC = temperature.getValueAsDouble();
+
+    inputs.positionTimestamp = PhoenixSignals.getFPGATimestamp(position);
+    inputs.velocityTimestamp = PhoenixSignals.getFPGATimestamp(velocity);
+    inputs.latencyCompensatedPositionRotations =
+        BaseStatusSignal.getLatencyCompensatedValueAsDouble(position, velocity);
+
+    if (sampleQueue != null) {
+      double[][] samples = sampleQueue.drain();
+      inputs.sampleTimestamps = samples[0];
+      inputs.positionSamplesRotations = samples[1];
+      inputs.velocitySamplesRotationsPerSecond = samples[2];
+      inputs.statorCurrentSamplesAmps = samples[3];
+    }
   }
 
   @Override
   public void setPositionSetpoint(Rotation2d setpoint) {
     this.setpoint = setpoint;
-    motor.setControl(positionVoltage.withPosition(setpoint.getMeasure()));
+    control.setControl(positionVoltage.withPosition(setpoint.getRotations()));
   }
 
   @Override
   public void setVoltage(double voltage) {
-    motor.setControl(voltageOut.withOutput(voltage));
+    control.setControl(voltageOut.withOutput(voltage));
   }
 
   @Override
   public void resetEncoder(Rotation2d position) {
-    motor.setPosition(position.getMeasure());
+    motor.setPosition(position.getRotations());
   }
 
   @Override
@@ -1,16 +1,21 @@
 package frc.robot.subsystems.pivot;
 
-import static edu.wpi.first.units.Units.RadiansPerSecond;
-import static edu.wpi.first.units.Units.RotationsPerSecond;
-
 import edu.wpi.first.math.controller.ArmFeedforward;
 import edu.wpi.first.math.controller.ProfiledPIDController;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.simulation.SingleJointedArmSim;
+import frc.robot.sim.SimWorld;
+
+public class PivotIOSim implements PivotIO, SimWorld.Mechanism {
+  private static final DCMotor MOTOR = DCMotor.getKrakenX60Foc(1);
 
-public class PivotIOSim implements PivotIO {
   private final SingleJointedArmSim physicsSim;
+  private final double gearRatio;
+  private final double jKgMetersSquared;
+  private final double armLengthMeters;
 
   private final ProfiledPIDController positionPID;
   private final ArmFeedforward feedforward;
@@ -18,6 +23,9 @@ public class PivotIOSim implements PivotIO {
   private double appliedVoltage = 0.0;
 
   private Rotation2d setpoint = Rotation2d.kZero;
+  // Whether the emulated TalonFX is holding the setpoint or just applying a voltage
+  private boolean closedLoop = false;
+  private double requestedVoltage = 0.0;
 
   /**
    * Creates a simulated pivot with 1 krakenX60 with FOC
@@ -27,7 +35,8 @@ public class PivotIOSim implements PivotIO {
    * @param armLengthMeters the length of the arm from its pivot point
    * @param minAngleRads the minimum angle the mechanism can reach
    * @param maxAngleRads the maximum angle the mechanism can reach
-   * @param positionPID the PID controlling the position of the arm
+   * @param positionPID the PID controlling the position of the arm, with a period of {@link
+   *     SimWorld#SUBSTEP_SECONDS}
    * @param feedforward the arm's feedforward controller
    */
   public PivotIOSim(
@@ -40,7 +49,7 @@ public class PivotIOSim implements PivotIO {
       ArmFeedforward feedforward) {
     physicsSim =
         new SingleJointedArmSim(
-            DCMotor.getKrakenX60Foc(1),
+            MOTOR,
             gearRatio,
             jKgMetersSquared,
             armLengthMeters,
@@ -49,35 +58,72 @@ public class PivotIOSim implements PivotIO {
             true,
             0,
             0.0);
+    this.gearRatio = gearRatio;
+    this.jKgMetersSquared = jKgMetersSquared;
+    this.armLengthMeters = armLengthMeters;
 
     this.positionPID = positionPID;
     this.feedforward = feedforward;
+    SimWorld.add(this);
+  }
+
+  /**
+   * Works out the feedforward from the plant. kG holds the arm level, kV cancels the motor's back
+   * EMF and kA accelerates the arm
+   *
+   * @return the feedforward in radians
+   */
+  public ArmFeedforward getModelFeedforward() {
+    // Volts per newton meter at the arm
+    double voltsPerTorque = MOTOR.rOhms / (MOTOR.KtNMPerAmp * gearRatio);
+    // The sim treats the arm as a uniform rod, so this is gravity's torque when it's level
+    double gravityTorque = jKgMetersSquared * 3.0 * 9.8 / (2.0 * armLengthMeters);
+    return new ArmFeedforward(
+        0.0,
+        gravityTorque * voltsPerTorque,
+        gearRatio / MOTOR.KvRadPerSecPerVolt,
+        jKgMetersSquared * voltsPerTorque);
   }
 
   @Override
   public void updateInputs(PivotIOInputs inputs) {
-    physicsSim.update(0.02);
-    inputs.position = Rotation2d.fromRadians(physicsSim.getAngleRads());
+    inputs.positionRotations = Units.radiansToRotations(physicsSim.getAngleRads());
     inputs.angularVelocityRotationsPerSecond =
-        RadiansPerSecond.of(physicsSim.getVelocityRadPerSec()).in(RotationsPerSecond);
+        Units.radiansToRotations(physicsSim.getVelocityRadPerSec());
     inputs.voltage = appliedVoltage;
     inputs.statorCurrentAmps = physicsSim.getCurrentDrawAmps();
     inputs.supplyCurrentAmps = Double.NEGATIVE_INFINITY;
     inputs.tempC = Double.NEGATIVE_INFINITY;
+
+    // No latency in sim
+    inputs.positionTimestamp = Timer.getFPGATimestamp();
+    inputs.velocityTimestamp = inputs.positionTimestamp;
+    inputs.latencyCompensatedPositionRotations = inputs.positionRotations;
   }
 
   @Override
   public void setPositionSetpoint(Rotation2d setpoint) {
     this.setpoint = setpoint;
-    setVoltage(
-        positionPID.calculate(physicsSim.getAngleRads(), setpoint.getRadians())
-            + feedforward.calculate(setpoint.getRadians(), positionPID.getSetpoint().velocity));
+    closedLoop = true;
   }
 
   @Override
   public void setVoltage(double voltage) {
-    appliedVoltage = voltage;
-    physicsSim.setInputVoltage(voltage);
+    closedLoop = false;
+    requestedVoltage = voltage;
+  }
+
+  @Override
+  public void substep(double dtSeconds) {
+    // Gravity feedforward is for where the profile is now, not where it's going to end up
+    appliedVoltage =
+        closedLoop
+            ? positionPID.calculate(physicsSim.getAngleRads(), setpoint.getRadians())
+                + feedforward.calculate(
+                    positionPID.getSetpoint().position, positionPID.getSetpoint().velocity)
+            : requestedVoltage;
+    physicsSim.setInputVoltage(appliedVoltage);
+    physicsSim.update(dtSeconds);
   }
 
   @Override
@@ -1,8 +1,5 @@
 package frc.robot.subsystems.roller;
 
-import static edu.wpi.first.units.Units.RotationsPerSecond;
-
-import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
 import com.ctre.phoenix6.controls.Follower;
@@ -16,10 +13,15 @@ import edu.wpi.first.units.measure.AngularVelocity;
 import edu.wpi.first.units.measure.Current;
 import edu.wpi.first.units.measure.Temperature;
 import edu.wpi.first.units.measure.Voltage;
+import frc.robot.util.CANBusBudget.SignalTier;
+import frc.robot.util.PhoenixSignals;
+import frc.robot.util.TalonFXControlFilter;
 
 public class DoubleMotorRollerIOReal implements RollerIO {
   private final TalonFX leader;
   private final TalonFX follower;
+  // Default commands set the same voltage every loop
+  private final TalonFXControlFilter control;
 
   private final StatusSignal<Angle> position;
   private final StatusSignal<AngularVelocity> velocity;
@@ -45,6 +47,7 @@ public class DoubleMotorRollerIOReal implements RollerIO {
   public DoubleMotorRollerIOReal(
       int leaderID, int followerID, boolean opposeMasterDirection, TalonFXConfiguration config) {
     leader = new TalonFX(leaderID);
+    control = new TalonFXControlFilter(leader);
     follower = new TalonFX(followerID);
 
     position = leader.getPosition();
@@ -57,21 +60,24 @@ public class DoubleMotorRollerIOReal implements RollerIO {
     leader.getConfigurator().apply(config);
     follower.getConfigurator().apply(config);
 
-    BaseStatusSignal.setUpdateFrequencyForAll(
-        50.0, position, velocity, statorCurrent, supplyCurrent, temperature, voltage);
+    // Rates get set by CANBusBudget once everything's registered, which re-enables these
     leader.optimizeBusUtilization();
     follower.optimizeBusUtilization();
 
     follower.setControl(new Follower(leaderID, opposeMasterDirection));
+
+    // Stator current is how the arm detects panels, so it's a control signal
+    PhoenixSignals.register(
+        leader.getNetwork(), SignalTier.CONTROL, position, velocity, statorCurrent);
+    PhoenixSignals.register(leader.getNetwork(), SignalTier.DIAGNOSTIC, supplyCurrent, voltage);
+    PhoenixSignals.register(leader.getNetwork(), SignalTier.THERMAL, temperature);
   }
 
   @Override
   public void updateInputs(RollerIOInputs inputs) {
-    BaseStatusSignal.refreshAll(
-        position, velocity, statorCurrent, supplyCurrent, temperature, voltage);
-
-    inputs.position = new Rotation2d(position.getValue());
-    inputs.velocityRotationsPerSecond = velocity.getValue().in(RotationsPerSecond);
+    // Signals are refreshed by PhoenixSignals before this is called
+    inputs.positionRotations = position.getValueAsDouble();
+    inputs.velocityRotationsPerSecond = velocity.getValueAsDouble();
     inputs.statorCurrentAmps = statorCurrent.getValueAsDouble();
     inputs.supplyCurrentAmps = supplyCurrent.getValueAsDouble();
     inputs.tempC = temperature.getValueAsDouble();
@@ -80,21 +86,21 @@ public class DoubleMotorRollerIOReal implements RollerIO {
 
   @Override
   public void setVoltage(double voltage) {
-    leader.setControl(voltageOut.withOutput(voltage));
+    control.setControl(voltageOut.withOutput(voltage));
   }
 
   @Override
   public void setPositionSetpoint(Rotation2d setpoint) {
-    leader.setControl(positionVoltage.withPosition(setpoint.getMeasure()));
+    control.setControl(positionVoltage.withPosition(setpoint.getRotations()));
   }
 
   @Override
   public void setVelocitySetpoint(double velocityRotationsPerSecond) {
-    leader.setControl(velocityVoltage.withVelocity(velocityRotationsPerSecond));
+    control.setControl(velocityVoltage.withVelocity(velocityRotationsPerSecond));
   }
 
   @Override
   public void resetEncoder(Rotation2d position) {
-    leader.setPosition(position.getMeasure());
+    leader.setPosition(position.getRotations());
   }
 }
@@ -1,7 +1,5 @@
 package frc.robot.subsystems.roller;
 
-import static edu.wpi.first.units.Units.RotationsPerSecond;
-
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.controller.ProfiledPIDController;
 import edu.wpi.first.math.controller.SimpleMotorFeedforward;
@@ -9,22 +7,37 @@ import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.math.system.plant.LinearSystemId;
 import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+import frc.robot.sim.SimWorld;
+
+public class DoubleMotorRollerIOSim implements RollerIO, SimWorld.Mechanism {
+  // What the emulated TalonFX was last asked to do
+  private enum ControlMode {
+    VOLTAGE,
+    POSITION,
+    VELOCITY
+  }
 
-public class DoubleMotorRollerIOSim implements RollerIO {
   private final DCMotorSim physicsSim;
 
   private final SimpleMotorFeedforward feedforward;
   private final ProfiledPIDController positionPID;
   private final PIDController velocityPID;
 
+  private ControlMode controlMode = ControlMode.VOLTAGE;
+  private double requestedVoltage = 0.0;
+  private double positionSetpointRotations = 0.0;
+  private double velocitySetpointRotationsPerSecond = 0.0;
+
   /**
    * Creates a simulated roller with 2 krakenX60s with FOC
    *
    * @param jKgMetersSquared the moment of inertia of the mechanism
    * @param gearing the gear ratio from rotor to mechanism
    * @param feedforward the roller's feedforward controller
-   * @param positionPID the PID controlling the roller's position
-   * @param velocityPID the PID controlling the roller's velocity
+   * @param positionPID the PID controlling the roller's position, with a period of {@link
+   *     SimWorld#SUBSTEP_SECONDS}
+   * @param velocityPID the PID controlling the roller's velocity, with a period of {@link
+   *     SimWorld#SUBSTEP_SECONDS}
    */
   public DoubleMotorRollerIOSim(
       double jKgMetersSquared,
@@ -41,13 +54,13 @@ public class DoubleMotorRollerIOSim implements RollerIO {
     this.feedforward = feedforward;
     this.positionPID = positionPID;
     this.velocityPID = velocityPID;
+    SimWorld.add(this);
   }
 
   @Override
   public void updateInputs(RollerIOInputs inputs) {
-    physicsSim.update(0.02);
-    inputs.position = new Rotation2d(physicsSim.getAngularPosition());
-    inputs.velocityRotationsPerSecond = physicsSim.getAngularVelocity().in(RotationsPerSecond);
+    inputs.positionRotations = physicsSim.getAngularPositionRotations();
+    inputs.velocityRotationsPerSecond = physicsSim.getAngularVelocityRPM() / 60.0;
     inputs.voltage = physicsSim.getInputVoltage();
     inputs.statorCurrentAmps = physicsSim.getCurrentDrawAmps();
     inputs.supplyCurrentAmps = Double.NEGATIVE_INFINITY;
@@ -56,22 +69,36 @@ public class DoubleMotorRollerIOSim implements RollerIO {
 
   @Override
   public void setPositionSetpoint(Rotation2d setpoint) {
-    physicsSim.setInputVoltage(
-        positionPID.calculate(physicsSim.getAngularPositionRotations(), setpoint.getRotations())
-            + feedforward.calculate(positionPID.getSetpoint().velocity));
+    controlMode = ControlMode.POSITION;
+    positionSetpointRotations = setpoint.getRotations();
   }
 
   @Override
   public void setVelocitySetpoint(double velocityRotationsPerSecond) {
-    physicsSim.setInputVoltage(
-        velocityPID.calculate(
-                physicsSim.getAngularVelocity().in(RotationsPerSecond), velocityRotationsPerSecond)
-            + feedforward.calculate(velocityRotationsPerSecond));
+    controlMode = ControlMode.VELOCITY;
+    velocitySetpointRotationsPerSecond = velocityRotationsPerSecond;
   }
 
   @Override
   public void setVoltage(double voltage) {
+    controlMode = ControlMode.VOLTAGE;
+    requestedVoltage = voltage;
+  }
+
+  @Override
+  public void substep(double dtSeconds) {
+    double voltage =
+        switch (controlMode) {
+          case VOLTAGE -> requestedVoltage;
+          case POSITION -> positionPID.calculate(
+                  physicsSim.getAngularPositionRotations(), positionSetpointRotations)
+              + feedforward.calculate(positionPID.getSetpoint().velocity);
+          case VELOCITY -> velocityPID.calculate(
+                  physicsSim.getAngularVelocityRPM() / 60.0, velocitySetpointRotationsPerSecond)
+              + feedforward.calculate(velocitySetpointRotationsPerSecond);
+        };
     physicsSim.setInputVoltage(voltage);
+    physicsSim.update(dtSeconds);
   }
 
   @Override
@@ -1,19 +1,27 @@
 package frc.robot.subsystems.roller;
 
 import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.util.InputRatePolicy;
 import org.littletonrobotics.junction.AutoLog;
 
 public interface RollerIO {
   @AutoLog
   public class RollerIOInputs {
     public double velocityRotationsPerSecond = 0.0;
-    public Rotation2d position = new Rotation2d();
+    public double positionRotations = 0.0;
     public double voltage = 0.0;
     public double supplyCurrentAmps = 0.0;
     public double statorCurrentAmps = 0.0;
     public double tempC = 0.0;
   }
 
+  // Stator current isn't here since the arm detects panels off of it
+  public static final InputRatePolicy RATE_POLICY =
+      InputRatePolicy.forClass(RollerIOInputs.class)
+          .everyNth(50, "tempC")
+          .onChange(0.25, "supplyCurrentAmps")
+          .onChange(0.05, "voltage");
+
   /**
    * Updates the passed-in inputs with the motor's data
    *
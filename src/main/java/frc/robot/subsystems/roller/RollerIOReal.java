@@ -1,8 +1,5 @@
 package frc.robot.subsystems.roller;
 
-import static edu.wpi.first.units.Units.RotationsPerSecond;
-
-import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
 import com.ctre.phoenix6.controls.PositionVoltage;
@@ -15,9 +12,14 @@ import edu.wpi.first.units.measure.AngularVelocity;
 import edu.wpi.first.units.measure.Current;
 import edu.wpi.first.units.measure.Temperature;
 import edu.wpi.first.units.measure.Voltage;
+import frc.robot.util.CANBusBudget.SignalTier;
+import frc.robot.util.PhoenixSignals;
+import frc.robot.util.TalonFXControlFilter;
 
 public class RollerIOReal implements RollerIO {
   private final TalonFX motor;
+  // Default commands set the same voltage every loop
+  private final TalonFXControlFilter control;
 
   private final StatusSignal<Angle> position;
   private final StatusSignal<AngularVelocity> velocity;
@@ -40,6 +42,7 @@ public class RollerIOReal implements RollerIO {
    */
   public RollerIOReal(int motorID, TalonFXConfiguration config) {
     motor = new TalonFX(motorID);
+    control = new TalonFXControlFilter(motor);
 
     position = motor.getPosition();
     velocity = motor.getVelocity();
@@ -50,18 +53,21 @@ public class RollerIOReal implements RollerIO {
 
     motor.getConfigurator().apply(config);
 
-    BaseStatusSignal.setUpdateFrequencyForAll(
-        50.0, position, velocity, statorCurrent, supplyCurrent, temperature, voltage);
+    // Rates get set by CANBusBudget once everything's registered, which re-enables these
     motor.optimizeBusUtilization();
+
+    // Stator current is how the arm detects panels, so it's a control signal
+    PhoenixSignals.register(
+        motor.getNetwork(), SignalTier.CONTROL, position, velocity, statorCurrent);
+    PhoenixSignals.register(motor.getNetwork(), SignalTier.DIAGNOSTIC, supplyCurrent, voltage);
+    PhoenixSignals.register(motor.getNetwork(), SignalTier.THERMAL, temperature);
   }
 
   @Override
   public void updateInputs(RollerIOInputs inputs) {
-    BaseStatusSignal.refreshAll(
-        position, velocity, statorCurrent, supplyCurrent, temperature, voltage);
-
-    inputs.position = new Rotation2d(position.getValue());
-    inputs.velocityRotationsPerSecond = velocity.getValue().in(RotationsPerSecond);
+    // Signals are refreshed by PhoenixSignals before this is called
+    inputs.positionRotations = position.getValueAsDouble();
+    inputs.velocityRotationsPerSecond = velocity.getValueAsDouble();
     inputs.statorCurrentAmps = statorCurrent.getValueAsDouble();
     inputs.supplyCurrentAmps = supplyCurrent.getValueAsDouble();
     inputs.tempC = temperature.getValueAsDouble();
@@ -70,21 +76,21 @@ public class RollerIOReal implements RollerIO {
 
   @Override
   public void setVoltage(double voltage) {
-    motor.setControl(voltageOut.withOutput(voltage));
+    control.setControl(voltageOut.withOutput(voltage));
   }
 
   @Override
   public void setPositionSetpoint(Rotation2d setpoint) {
-    motor.setControl(positionVoltage.withPosition(setpoint.getMeasure()));
+    control.setControl(positionVoltage.withPosition(setpoint.getRotations()));
   }
 
   @Override
   public void setVelocitySetpoint(double velocityRotationsPerSecond) {
-    motor.setControl(velocityVoltage.withVelocity(velocityRotationsPerSecond));
+    control.setControl(velocityVoltage.withVelocity(velocityRotationsPerSecond));
   }
 
   @Override
   public void resetEncoder(Rotation2d position) {
-    motor.setPosition(position.getMeasure());
+    motor.setPosition(position.getRotations());
   }
 }
@@ -1,7 +1,5 @@
 package frc.robot.subsystems.roller;
 
-import static edu.wpi.first.units.Units.RotationsPerSecond;
-
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.controller.ProfiledPIDController;
 import edu.wpi.first.math.controller.SimpleMotorFeedforward;
@@ -9,22 +7,40 @@ import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.math.system.plant.LinearSystemId;
 import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+import frc.robot.sim.SimWorld;
+
+public class RollerIOSim implements RollerIO, SimWorld.Mechanism {
+  // What the emulated TalonFX was last asked to do
+  private enum ControlMode {
+    VOLTAGE,
+    POSITION,
+    VELOCITY
+  }
 
-public class RollerIOSim implements RollerIO {
   private final DCMotorSim physicsSim;
 
   private final SimpleMotorFeedforward feedforward;
   private final ProfiledPIDController positionPID;
   private final PIDController velocityPID;
 
+  private ControlMode controlMode = ControlMode.VOLTAGE;
+  private double requestedVoltage = 0.0;
+  private double positionSetpointRotations = 0.0;
+  private double velocitySetpointRotationsPerSecond = 0.0;
+
+  // Something jammed in the rollers, like a held panel
+  private boolean stalled = false;
+
   /**
    * Creates a simulated roller with 1 krakenX60 with FOC
    *
    * @param jKgMetersSquared the moment of inertia of the mechanism
    * @param gearing the gear ratio from rotor to mechanism
    * @param feedforward the roller's feedforward controller
-   * @param positionPID the PID controlling the roller's position
-   * @param velocityPID the PID controlling the roller's velocity
+   * @param positionPID the PID controlling the roller's position, with a period of {@link
+   *     SimWorld#SUBSTEP_SECONDS}
+   * @param velocityPID the PID controlling the roller's velocity, with a period of {@link
+   *     SimWorld#SUBSTEP_SECONDS}
    */
   public RollerIOSim(
       double jKgMetersSquared,
@@ -41,13 +57,13 @@ public class RollerIOSim implements RollerIO {
     this.feedforward = feedforward;
     this.positionPID = positionPID;
     this.velocityPID = velocityPID;
+    SimWorld.add(this);
   }
 
   @Override
   public void updateInputs(RollerIOInputs inputs) {
-    physicsSim.update(0.02);
-    inputs.position = new Rotation2d(physicsSim.getAngularPosition());
-    inputs.velocityRotationsPerSecond = physicsSim.getAngularVelocity().in(RotationsPerSecond);
+    inputs.positionRotations = physicsSim.getAngularPositionRotations();
+    inputs.velocityRotationsPerSecond = physicsSim.getAngularVelocityRPM() / 60.0;
     inputs.voltage = physicsSim.getInputVoltage();
     inputs.statorCurrentAmps = physicsSim.getCurrentDrawAmps();
     inputs.supplyCurrentAmps = Double.NEGATIVE_INFINITY;
@@ -56,22 +72,62 @@ public class RollerIOSim implements RollerIO {
 
   @Override
   public void setPositionSetpoint(Rotation2d setpoint) {
-    physicsSim.setInputVoltage(
-        positionPID.calculate(physicsSim.getAngularPositionRotations(), setpoint.getRotations())
-            + feedforward.calculate(positionPID.getSetpoint().velocity));
+    controlMode = ControlMode.POSITION;
+    positionSetpointRotations = setpoint.getRotations();
   }
 
   @Override
   public void setVelocitySetpoint(double velocityRotationsPerSecond) {
-    physicsSim.setInputVoltage(
-        velocityPID.calculate(
-                physicsSim.getAngularVelocity().in(RotationsPerSecond), velocityRotationsPerSecond)
-            + feedforward.calculate(velocityRotationsPerSecond));
+    controlMode = ControlMode.VELOCITY;
+    velocitySetpointRotationsPerSecond = velocityRotationsPerSecond;
   }
 
   @Override
   public void setVoltage(double voltage) {
+    controlMode = ControlMode.VOLTAGE;
+    requestedVoltage = voltage;
+  }
+
+  @Override
+  public void substep(double dtSeconds) {
+    double voltage =
+        switch (controlMode) {
+          case VOLTAGE -> requestedVoltage;
+          case POSITION -> positionPID.calculate(
+                  physicsSim.getAngularPositionRotations(), positionSetpointRotations)
+              + feedforward.calculate(positionPID.getSetpoint().velocity);
+          case VELOCITY -> velocityPID.calculate(
+                  physicsSim.getAngularVelocityRPM() / 60.0, velocitySetpointRotationsPerSecond)
+              + feedforward.calculate(velocitySetpointRotationsPerSecond);
+        };
     physicsSim.setInputVoltage(voltage);
+    physicsSim.update(dtSeconds);
+    if (stalled) {
+      physicsSim.setAngularVelocity(0.0);
+    }
+  }
+
+  /**
+   * Holds the rollers still no matter the voltage, so they draw stall current like they would
+   * gripping a game piece
+   *
+   * @param stalled whether the rollers are stalled
+   */
+  public void setStalled(boolean stalled) {
+    this.stalled = stalled;
+  }
+
+  /**
+   * Gets how fast the mechanism is spinning, for game piece sims to move pieces with
+   *
+   * @return velocity after gearing, in rotations per second
+   */
+  public double getVelocityRotationsPerSecond() {
+    return physicsSim.getAngularVelocityRPM() / 60.0;
+  }
+
+  public double getAppliedVoltage() {
+    return physicsSim.getInputVoltage();
   }
 
   @Override
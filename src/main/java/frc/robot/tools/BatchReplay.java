@@ -0,0 +1,235 @@
+package frc.robot.tools;
+
+import frc.robot.Main;
+import frc.robot.Robot;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Replays every log in a directory through the robot code, several at once. Each log gets its own
+ * JVM since the logger, scheduler and HAL are all static and can't be reset between logs. Writes
+ * each replay's _sim log and console output, then a summary of which outputs diverged from what
+ * the robot logged and how long the loops took
+ *
+ * <p>Run with ./gradlew batchReplay --args="path/to/logs". Also takes --out for where to write
+ * results (logs/replay by default), --jobs for how many to run at once (one per core by default)
+ * and --ignore for more output key prefixes to leave out of the comparison
+ *
+ * <p>Exits with 1 if any log failed to replay or diverged, so it can gate a merge
+ */
+public final class BatchReplay {
+  // Outputs that depend on the computer doing the replay instead of on the inputs. Shedding replays
+  // the robot's loop times, so the load shedder's own outputs get compared
+  private static final List<String> DEFAULT_IGNORED =
+      List.of(
+          "AllocationMonitor/",
+          "AsyncWPILOGWriter/",
+          "CANBusBudget/",
+          "ControlFilter/",
+          "IOInputsPipeline/",
+          "LoggedRobot/",
+          "Perf/",
+          "PhoenixSignals/");
+
+  private static final long TIMEOUT_MINUTES = 15;
+
+  private static final class Result {
+    final String name;
+    // -1 if the replay timed out or couldn't be started
+    final int exitCode;
+    final double wallSeconds;
+    // Null if the replay didn't write a log or it couldn't be read
+    final ReplayDiff.Summary diff;
+    final String error;
+
+    Result(String name, int exitCode, double wallSeconds, ReplayDiff.Summary diff, String error) {
+      this.name = name;
+      this.exitCode = exitCode;
+      this.wallSeconds = wallSeconds;
+      this.diff = diff;
+      this.error = error;
+    }
+
+    boolean passed() {
+      return exitCode == 0 && diff != null && diff.divergences.isEmpty();
+    }
+  }
+
+  private BatchReplay() {}
+
+  public static void main(String... args) throws IOException, InterruptedException {
+    Path logDir = null;
+    Path outDir = null;
+    int jobs = Runtime.getRuntime().availableProcessors();
+    List<String> ignored = new ArrayList<>(DEFAULT_IGNORED);
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--out" -> outDir = Path.of(args[++i]);
+        case "--jobs" -> jobs = Integer.parseInt(args[++i]);
+        case "--ignore" -> ignored.add(args[++i]);
+        default -> logDir = Path.of(args[i]);
+      }
+    }
+    if (logDir == null) {
+      System.err.println(
+          "Usage: BatchReplay <log dir> [--out dir] [--jobs n] [--ignore prefix]...");
+      System.exit(2);
+    }
+    if (outDir == null) {
+      outDir = logDir.resolve("replay");
+    }
+    Files.createDirectories(outDir);
+
+    List<Path> logs;
+    try (Stream<Path> files = Files.list(logDir)) {
+      logs =
+          files
+              .filter(
+                  path -> {
+                    String name = path.getFileName().toString();
+                    return name.endsWith(".wpilog") && !name.endsWith("_sim.wpilog");
+                  })
+              .sorted()
+              .toList();
+    }
+    System.out.println("Replaying " + logs.size() + " logs, " + jobs + " at a time");
+
+    ExecutorService pool = Executors.newFixedThreadPool(jobs);
+    List<Future<Result>> futures = new ArrayList<>();
+    final Path finalOutDir = outDir;
+    for (Path log : logs) {
+      futures.add(pool.submit(() -> replay(log, finalOutDir, ignored)));
+    }
+    pool.shutdown();
+
+    List<Result> results = new ArrayList<>();
+    for (int i = 0; i < logs.size(); i++) {
+      try {
+        results.add(futures.get(i).get());
+      } catch (ExecutionException e) {
+        results.add(new Result(name(logs.get(i)), -1, 0.0, null, e.getCause().toString()));
+      }
+    }
+
+    writeSummary(results, outDir);
+    System.exit(results.stream().allMatch(Result::passed) ? 0 : 1);
+  }
+
+  private static String name(Path log) {
+    String fileName = log.getFileName().toString();
+    return fileName.substring(0, fileName.length() - ".wpilog".length());
+  }
+
+  private static Result replay(Path log, Path outDir, List<String> ignored)
+      throws IOException, InterruptedException {
+    String name = name(log);
+    Path replayLog = outDir.resolve(name + "_sim.wpilog").toAbsolutePath();
+    Path console = outDir.resolve(name + ".txt");
+    Files.deleteIfExists(replayLog);
+
+    // Same classpath and natives as this JVM, just running the robot in replay mode
+    List<String> command =
+        List.of(
+            Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+            "-cp",
+            System.getProperty("java.class.path"),
+            "-Djava.library.path=" + System.getProperty("java.library.path"),
+            "-D" + Robot.REPLAY_LOG_PROPERTY + "=" + log.toAbsolutePath(),
+            "-D" + Robot.REPLAY_OUTPUT_PROPERTY + "=" + replayLog,
+            Main.class.getName());
+
+    long start = System.nanoTime();
+    Process process =
+        new ProcessBuilder(command)
+            .redirectErrorStream(true)
+            .redirectOutput(console.toFile())
+            .start();
+    int exitCode;
+    if (process.waitFor(TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+      exitCode = process.exitValue();
+    } else {
+      process.destroyForcibly();
+      exitCode = -1;
+    }
+    double wallSeconds = (System.nanoTime() - start) / 1e9;
+
+    if (!Files.exists(replayLog)) {
+      return new Result(name, exitCode, wallSeconds, null, "No replay log, see " + console);
+    }
+    try {
+      ReplayDiff.Summary diff = ReplayDiff.compare(log, replayLog, ignored);
+      writeDivergences(diff, outDir.resolve(name + "_divergences.csv"));
+      return new Result(name, exitCode, wallSeconds, diff, exitCode == -1 ? "Timed out" : "");
+    } catch (IOException e) {
+      return new Result(name, exitCode, wallSeconds, null, e.toString());
+    }
+  }
+
+  private static void writeDivergences(ReplayDiff.Summary diff, Path file) throws IOException {
+    try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
+      writer.println("key,mismatches,first mismatch (s)");
+      for (ReplayDiff.KeyDivergence divergence : diff.divergences) {
+        writer.printf(
+            Locale.ROOT,
+            "%s,%d,%.3f%n",
+            divergence.key,
+            divergence.mismatches,
+            divergence.firstMismatchMicros / 1e6);
+      }
+    }
+  }
+
+  private static void writeSummary(List<Result> results, Path outDir) throws IOException {
+    Path file = outDir.resolve("summary.csv");
+    try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
+      writer.println(
+          "log,exit code,wall (s),cycles,compared keys,diverged keys,first diverged key,"
+              + "first divergence (s),real mean user code (ms),real max user code (ms),"
+              + "replay mean user code (ms),replay max user code (ms),error");
+      for (Result result : results) {
+        ReplayDiff.Summary diff = result.diff;
+        ReplayDiff.KeyDivergence first = diff == null ? null : diff.first();
+        writer.printf(
+            Locale.ROOT,
+            "%s,%d,%.1f,%d,%d,%d,%s,%.3f,%.3f,%.3f,%.3f,%.3f,%s%n",
+            result.name,
+            result.exitCode,
+            result.wallSeconds,
+            diff == null ? 0 : diff.cycles,
+            diff == null ? 0 : diff.comparedKeys,
+            diff == null ? 0 : diff.divergences.size(),
+            first == null ? "" : first.key,
+            first == null ? Double.NaN : first.firstMismatchMicros / 1e6,
+            diff == null ? Double.NaN : diff.realMeanUserCodeMs,
+            diff == null ? Double.NaN : diff.realMaxUserCodeMs,
+            diff == null ? Double.NaN : diff.replayMeanUserCodeMs,
+            diff == null ? Double.NaN : diff.replayMaxUserCodeMs,
+            result.error);
+
+        System.out.printf(
+            Locale.ROOT,
+            "%-40s %s in %.1f s%s%n",
+            result.name,
+            result.passed()
+                ? "matched"
+                : diff == null
+                    ? "FAILED"
+                    : "DIVERGED (" + diff.divergences.size() + " keys)",
+            result.wallSeconds,
+            first == null ? "" : ", first " + first.key + " at " + first.firstMismatchMicros / 1e6);
+      }
+    }
+    System.out.println("Summary written to " + file);
+  }
+}
@@ -0,0 +1,174 @@
+package frc.robot.tools;
+
+import frc.robot.subsystems.colorsensor.BallColorClassifier;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Works out {@link BallColorClassifier}'s ball colors from logged color sensor readings. Record one
+ * log per ball color, holding that color of ball in front of the sensor at a few angles, then pass
+ * them in and paste what it prints into the classifier. Only readings where something was in front
+ * of the sensor count
+ *
+ * <p>Run with ./gradlew calibrateColors --args="--red red.wpilog --blue blue.wpilog". Each flag
+ * takes one or more logs
+ */
+public final class ColorCalibration {
+  private static final String INPUTS_KEY = "/Intake/Color Sensor/";
+  // How much of each ball's readings the suggested distance limit should take in
+  private static final double COVERAGE = 0.99;
+  // Slack on top of that for lighting the logs didn't see
+  private static final double DISTANCE_MARGIN = 1.5;
+
+  /** Readings of one ball color */
+  private static final class Readings {
+    final List<double[]> samples = new ArrayList<>();
+
+    // Fields are only logged when they change, so keep the newest of each and take a reading
+    // whenever a loop's records are done
+    double red = 0.0;
+    double green = 0.0;
+    double blue = 0.0;
+    long proximity = 0;
+    long pendingMicros = -1;
+
+    void advance(long timestampMicros) {
+      if (timestampMicros == pendingMicros) return;
+      flush();
+      pendingMicros = timestampMicros;
+    }
+
+    void flush() {
+      if (pendingMicros >= 0
+          && proximity >= BallColorClassifier.MIN_PROXIMITY
+          && red + green + blue > 0.0) {
+        samples.add(new double[] {red, green, blue});
+      }
+    }
+
+    double[] mean() {
+      double[] mean = new double[3];
+      for (double[] sample : samples) {
+        for (int i = 0; i < 3; i++) {
+          mean[i] += sample[i] / samples.size();
+        }
+      }
+      return mean;
+    }
+
+    // The distance from the mean that COVERAGE of the readings are within
+    double spread(double[] mean) {
+      double[] distances = new double[samples.size()];
+      for (int i = 0; i < distances.length; i++) {
+        distances[i] = distance(samples.get(i), mean);
+      }
+      Arrays.sort(distances);
+      return distances[Math.min(distances.length - 1, (int) (COVERAGE * distances.length))];
+    }
+  }
+
+  private ColorCalibration() {}
+
+  public static void main(String... args) throws IOException {
+    List<Path> redLogs = new ArrayList<>();
+    List<Path> blueLogs = new ArrayList<>();
+    List<Path> logs = null;
+    for (String arg : args) {
+      switch (arg) {
+        case "--red" -> logs = redLogs;
+        case "--blue" -> logs = blueLogs;
+        default -> {
+          if (logs == null) usage();
+          logs.add(Path.of(arg));
+        }
+      }
+    }
+    if (redLogs.isEmpty() || blueLogs.isEmpty()) usage();
+
+    Readings red = read(redLogs);
+    Readings blue = read(blueLogs);
+    if (red.samples.isEmpty() || blue.samples.isEmpty()) {
+      System.err.println("No readings with a ball in front of the sensor in one of the sets");
+      System.exit(1);
+    }
+
+    double[] redMean = red.mean();
+    double[] blueMean = blue.mean();
+    double redSpread = red.spread(redMean);
+    double blueSpread = blue.spread(blueMean);
+    print("RED_BALL", redMean, red.samples.size(), redSpread);
+    print("BLUE_BALL", blueMean, blue.samples.size(), blueSpread);
+
+    // Past halfway between the balls the closer one wins anyway
+    double between = distance(redMean, blueMean);
+    double maxDistance = Math.min(DISTANCE_MARGIN * Math.max(redSpread, blueSpread), between / 2.0);
+    System.out.printf(Locale.ROOT, "MAX_DISTANCE = %.3f;%n", maxDistance);
+    if (Math.max(redSpread, blueSpread) > between / 2.0) {
+      System.out.println("The two balls' readings overlap, so some will be misclassified");
+    }
+  }
+
+  private static void usage() {
+    System.err.println("Usage: ColorCalibration --red <log>... --blue <log>...");
+    System.exit(2);
+  }
+
+  private static Readings read(List<Path> logs) throws IOException {
+    Readings readings = new Readings();
+    for (Path log : logs) {
+      new WPILOGScanner(log)
+          .subscribe(
+              INPUTS_KEY + "Red",
+              (timestamp, data, offset, length) -> {
+                readings.advance(timestamp);
+                readings.red = WPILOGScanner.getDouble(data, offset);
+              })
+          .subscribe(
+              INPUTS_KEY + "Green",
+              (timestamp, data, offset, length) -> {
+                readings.advance(timestamp);
+                readings.green = WPILOGScanner.getDouble(data, offset);
+              })
+          .subscribe(
+              INPUTS_KEY + "Blue",
+              (timestamp, data, offset, length) -> {
+                readings.advance(timestamp);
+                readings.blue = WPILOGScanner.getDouble(data, offset);
+              })
+          .subscribe(
+              INPUTS_KEY + "Proximity",
+              (timestamp, data, offset, length) -> {
+                readings.advance(timestamp);
+                readings.proximity = WPILOGScanner.getInteger(data, offset);
+              })
+          .scan();
+      readings.flush();
+      // Don't carry the last log's values into the next one
+      readings.pendingMicros = -1;
+      readings.proximity = 0;
+    }
+    return readings;
+  }
+
+  private static void print(String name, double[] mean, int count, double spread) {
+    System.out.printf(
+        Locale.ROOT,
+        "%s = {%.3f, %.3f, %.3f}; // %d readings, %.0f%% within %.3f%n",
+        name,
+        mean[0],
+        mean[1],
+        mean[2],
+        count,
+        COVERAGE * 100.0,
+        spread);
+  }
+
+  private static double distance(double[] a, double[] b) {
+    return Math.sqrt(
+        Math.pow(a[0] - b[0], 2) + Math.pow(a[1] - b[1], 2) + Math.pow(a[2] - b[2], 2));
+  }
+}
@@ -0,0 +1,265 @@
+package frc.robot.tools;
+
+import frc.robot.Superstructure.BallAction;
+import frc.robot.Superstructure.PanelAction;
+import frc.robot.Superstructure.State;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Works out match stats from robot logs without opening them in AdvantageScope: time spent in each
+ * superstructure state while enabled, intake to shoot and intake to score cycle times, how long
+ * elevator moves take, and a histogram of loop times with overrun counts. Logs are scanned with
+ * {@link WPILOGScanner}, several at once
+ *
+ * <p>Run with ./gradlew logStats --args="path/to/logs". Takes log files or directories of them.
+ * Pass --prefix /ReplayOutputs/ to read a replayed log's outputs
+ */
+public final class LogStats {
+  private static final double LOOP_PERIOD_MS = 20.0;
+  // 1 ms wide, with everything past the last one lumped into it
+  private static final int HISTOGRAM_BINS = 50;
+
+  /** Everything worked out for one log */
+  private static final class Match {
+    final Path log;
+
+    long enabledMicros = 0;
+    final long[] stateMicros = new long[State.COUNT];
+    final List<Double> ballCycleSeconds = new ArrayList<>();
+    final List<Double> panelCycleSeconds = new ArrayList<>();
+    final List<Double> elevatorMoveSeconds = new ArrayList<>();
+    final long[] loopHistogram = new long[HISTOGRAM_BINS];
+    long loops = 0;
+    long overruns = 0;
+    double maxLoopMs = 0.0;
+
+    // Where the scan is up to
+    boolean enabled = false;
+    int state = State.IDLE;
+    long lastEventMicros = 0;
+    long ballCycleStartMicros = -1;
+    long panelCycleStartMicros = -1;
+    boolean atExtension = true;
+    long elevatorMoveStartMicros = -1;
+
+    Match(Path log) {
+      this.log = log;
+    }
+
+    // Time up to now counts toward whatever the robot was doing before this event
+    void advance(long timestampMicros) {
+      if (enabled && timestampMicros > lastEventMicros) {
+        long elapsed = timestampMicros - lastEventMicros;
+        enabledMicros += elapsed;
+        stateMicros[state] += elapsed;
+      }
+      lastEventMicros = Math.max(lastEventMicros, timestampMicros);
+    }
+
+    void setState(long timestampMicros, int newState) {
+      advance(timestampMicros);
+      if (newState < 0 || newState >= State.COUNT) return;
+
+      BallAction oldBall = State.getBallAction(state);
+      BallAction newBall = State.getBallAction(newState);
+      if (newBall == BallAction.INTAKE && ballCycleStartMicros < 0) {
+        ballCycleStartMicros = timestampMicros;
+      } else if (newBall == BallAction.SHOOT
+          && oldBall != BallAction.SHOOT
+          && ballCycleStartMicros >= 0) {
+        ballCycleSeconds.add((timestampMicros - ballCycleStartMicros) / 1e6);
+        ballCycleStartMicros = -1;
+      }
+
+      PanelAction oldPanel = State.getPanelAction(state);
+      PanelAction newPanel = State.getPanelAction(newState);
+      boolean scoring = newPanel == PanelAction.SCORE_LOW || newPanel == PanelAction.SCORE_HIGH;
+      boolean wasScoring = oldPanel == PanelAction.SCORE_LOW || oldPanel == PanelAction.SCORE_HIGH;
+      if (newPanel == PanelAction.INTAKE && panelCycleStartMicros < 0) {
+        panelCycleStartMicros = timestampMicros;
+      } else if (scoring && !wasScoring && panelCycleStartMicros >= 0) {
+        panelCycleSeconds.add((timestampMicros - panelCycleStartMicros) / 1e6);
+        panelCycleStartMicros = -1;
+      }
+
+      state = newState;
+    }
+
+    void setEnabled(long timestampMicros, boolean newEnabled) {
+      advance(timestampMicros);
+      enabled = newEnabled;
+    }
+
+    void setAtExtension(long timestampMicros, boolean newAtExtension) {
+      if (atExtension && !newAtExtension) {
+        elevatorMoveStartMicros = timestampMicros;
+      } else if (!atExtension && newAtExtension && elevatorMoveStartMicros >= 0) {
+        elevatorMoveSeconds.add((timestampMicros - elevatorMoveStartMicros) / 1e6);
+        elevatorMoveStartMicros = -1;
+      }
+      atExtension = newAtExtension;
+    }
+
+    void addLoop(double cycleMs) {
+      loops++;
+      if (cycleMs > LOOP_PERIOD_MS) overruns++;
+      maxLoopMs = Math.max(maxLoopMs, cycleMs);
+      loopHistogram[Math.min(HISTOGRAM_BINS - 1, Math.max(0, (int) cycleMs))]++;
+    }
+  }
+
+  private LogStats() {}
+
+  public static void main(String... args) throws IOException {
+    String prefix = "/RealOutputs/";
+    List<Path> logs = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--prefix")) {
+        prefix = args[++i];
+        continue;
+      }
+      Path path = Path.of(args[i]);
+      if (Files.isDirectory(path)) {
+        try (Stream<Path> files = Files.list(path)) {
+          files.filter(file -> file.toString().endsWith(".wpilog")).sorted().forEach(logs::add);
+        }
+      } else {
+        logs.add(path);
+      }
+    }
+    if (logs.isEmpty()) {
+      System.err.println("Usage: LogStats <log or dir>... [--prefix /ReplayOutputs/]");
+      System.exit(2);
+    }
+
+    final String outputPrefix = prefix;
+    List<Match> matches =
+        logs.parallelStream()
+            .map(
+                log -> {
+                  try {
+                    return analyze(log, outputPrefix);
+                  } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                  }
+                })
+            .toList();
+    for (Match match : matches) {
+      print(match);
+    }
+  }
+
+  private static Match analyze(Path log, String prefix) throws IOException {
+    Match match = new Match(log);
+    WPILOGScanner scanner =
+        new WPILOGScanner(log)
+            .subscribe(
+                "/DriverStation/Enabled",
+                (timestamp, data, offset, length) ->
+                    match.setEnabled(timestamp, WPILOGScanner.getBoolean(data, offset)))
+            .subscribe(
+                prefix + "Superstructure/State",
+                (timestamp, data, offset, length) ->
+                    match.setState(timestamp, (int) WPILOGScanner.getInteger(data, offset)))
+            .subscribe(
+                prefix + "Elevator/At Extension",
+                (timestamp, data, offset, length) ->
+                    match.setAtExtension(timestamp, WPILOGScanner.getBoolean(data, offset)))
+            .subscribe(
+                prefix + "LoggedRobot/FullCycleMS",
+                (timestamp, data, offset, length) ->
+                    match.addLoop(WPILOGScanner.getDouble(data, offset)));
+    scanner.scan();
+    match.advance(scanner.getLastTimestampMicros());
+    return match;
+  }
+
+  private static String describe(int state) {
+    return String.format(
+        Locale.ROOT,
+        "%d balls%s, ball %s, panel %s",
+        State.getNumBalls(state),
+        State.hasPanel(state) ? " + panel" : "",
+        State.getBallAction(state),
+        State.getPanelAction(state));
+  }
+
+  private static void print(Match match) {
+    System.out.println("== " + match.log.getFileName());
+    System.out.printf(Locale.ROOT, "Enabled for %.1f s%n", match.enabledMicros / 1e6);
+
+    System.out.println("Time in state:");
+    List<Integer> states = new ArrayList<>();
+    for (int state = 0; state < State.COUNT; state++) {
+      if (match.stateMicros[state] > 0) states.add(state);
+    }
+    states.sort((a, b) -> Long.compare(match.stateMicros[b], match.stateMicros[a]));
+    for (int state : states) {
+      System.out.printf(
+          Locale.ROOT,
+          "  %7.2f s  %5.1f%%  %s%n",
+          match.stateMicros[state] / 1e6,
+          100.0 * match.stateMicros[state] / Math.max(1, match.enabledMicros),
+          describe(state));
+    }
+
+    printDurations("Intake to shoot cycles", match.ballCycleSeconds);
+    printDurations("Intake to score panel cycles", match.panelCycleSeconds);
+    printDurations("Elevator moves", match.elevatorMoveSeconds);
+
+    System.out.printf(
+        Locale.ROOT,
+        "Loops: %d, %d over %.0f ms (%.2f%%), max %.2f ms%n",
+        match.loops,
+        match.overruns,
+        LOOP_PERIOD_MS,
+        100.0 * match.overruns / Math.max(1, match.loops),
+        match.maxLoopMs);
+    long mostInBin = 1;
+    for (long count : match.loopHistogram) {
+      mostInBin = Math.max(mostInBin, count);
+    }
+    for (int bin = 0; bin < HISTOGRAM_BINS; bin++) {
+      long count = match.loopHistogram[bin];
+      if (count == 0) continue;
+      System.out.printf(
+          Locale.ROOT,
+          "  %s%2d ms %8d %s%n",
+          bin == HISTOGRAM_BINS - 1 ? ">=" : "  ",
+          bin,
+          count,
+          "#".repeat((int) (40 * count / mostInBin)));
+    }
+    System.out.println();
+  }
+
+  private static void printDurations(String name, List<Double> seconds) {
+    if (seconds.isEmpty()) {
+      System.out.println(name + ": none");
+      return;
+    }
+    double sum = 0.0;
+    double min = Double.MAX_VALUE;
+    double max = 0.0;
+    for (double value : seconds) {
+      sum += value;
+      min = Math.min(min, value);
+      max = Math.max(max, value);
+    }
+    System.out.printf(
+        Locale.ROOT,
+        "%s: %d, mean %.2f s, min %.2f s, max %.2f s%n",
+        name,
+        seconds.size(),
+        sum / seconds.size(),
+        min,
+        max);
+  }
+}
@@ -0,0 +1,193 @@
+package frc.robot.tools;
+
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Compares the outputs a replay produced against the ones the robot logged. Both logs only hold a
+ * value when it changes, so each key is walked as a timeline and compared at every timestamp where
+ * either side changed
+ */
+final class ReplayDiff {
+  private static final String REAL_PREFIX = "/RealOutputs/";
+  private static final String REPLAY_PREFIX = "/ReplayOutputs/";
+  private static final String USER_CODE_KEY = "LoggedRobot/UserCodeMS";
+
+  private static final class Change {
+    final long timestamp;
+    final byte[] value;
+
+    Change(long timestamp, byte[] value) {
+      this.timestamp = timestamp;
+      this.value = value;
+    }
+  }
+
+  static final class KeyDivergence {
+    final String key;
+    final int mismatches;
+    final long firstMismatchMicros;
+
+    KeyDivergence(String key, int mismatches, long firstMismatchMicros) {
+      this.key = key;
+      this.mismatches = mismatches;
+      this.firstMismatchMicros = firstMismatchMicros;
+    }
+  }
+
+  static final class Summary {
+    int comparedKeys = 0;
+    final List<KeyDivergence> divergences = new ArrayList<>();
+    long cycles = 0;
+    double realMeanUserCodeMs = Double.NaN;
+    double realMaxUserCodeMs = Double.NaN;
+    double replayMeanUserCodeMs = Double.NaN;
+    double replayMaxUserCodeMs = Double.NaN;
+
+    /** The key that went wrong first, or null if nothing diverged */
+    KeyDivergence first() {
+      KeyDivergence first = null;
+      for (KeyDivergence divergence : divergences) {
+        if (first == null || divergence.firstMismatchMicros < first.firstMismatchMicros) {
+          first = divergence;
+        }
+      }
+      return first;
+    }
+  }
+
+  private ReplayDiff() {}
+
+  /**
+   * Compares a replayed log against the log it replayed
+   *
+   * @param realLog the log from the robot
+   * @param replayLog the _sim log the replay wrote
+   * @param ignoredPrefixes keys starting with any of these aren't compared
+   * @return what diverged, plus loop timings from both logs
+   * @throws IOException if either log can't be read
+   */
+  static Summary compare(Path realLog, Path replayLog, List<String> ignoredPrefixes)
+      throws IOException {
+    Map<String, List<Change>> real = read(realLog, REAL_PREFIX);
+    Map<String, List<Change>> replayed = read(replayLog, REPLAY_PREFIX);
+
+    Summary summary = new Summary();
+    TreeSet<String> keys = new TreeSet<>(real.keySet());
+    keys.addAll(replayed.keySet());
+    for (String key : keys) {
+      if (isIgnored(key, ignoredPrefixes)) continue;
+      summary.comparedKeys++;
+      KeyDivergence divergence =
+          compareKey(key, real.getOrDefault(key, List.of()), replayed.getOrDefault(key, List.of()));
+      if (divergence != null) {
+        summary.divergences.add(divergence);
+      }
+    }
+
+    // Only changes are logged, but a timing almost never repeats exactly so this is every cycle
+    List<Change> realUserCode = real.getOrDefault(USER_CODE_KEY, List.of());
+    List<Change> replayUserCode = replayed.getOrDefault(USER_CODE_KEY, List.of());
+    summary.cycles = replayUserCode.size();
+    summary.realMeanUserCodeMs = mean(realUserCode);
+    summary.realMaxUserCodeMs = max(realUserCode);
+    summary.replayMeanUserCodeMs = mean(replayUserCode);
+    summary.replayMaxUserCodeMs = max(replayUserCode);
+    return summary;
+  }
+
+  private static boolean isIgnored(String key, List<String> ignoredPrefixes) {
+    for (String prefix : ignoredPrefixes) {
+      if (key.startsWith(prefix)) return true;
+    }
+    return false;
+  }
+
+  private static KeyDivergence compareKey(String key, List<Change> real, List<Change> replayed) {
+    int i = 0;
+    int j = 0;
+    byte[] realValue = null;
+    byte[] replayValue = null;
+    int mismatches = 0;
+    long firstMismatch = Long.MAX_VALUE;
+
+    while (i < real.size() || j < replayed.size()) {
+      long timestamp =
+          Math.min(
+              i < real.size() ? real.get(i).timestamp : Long.MAX_VALUE,
+              j < replayed.size() ? replayed.get(j).timestamp : Long.MAX_VALUE);
+      while (i < real.size() && real.get(i).timestamp == timestamp) {
+        realValue = real.get(i++).value;
+      }
+      while (j < replayed.size() && replayed.get(j).timestamp == timestamp) {
+        replayValue = replayed.get(j++).value;
+      }
+
+      if (!Arrays.equals(realValue, replayValue)) {
+        mismatches++;
+        firstMismatch = Math.min(firstMismatch, timestamp);
+      }
+    }
+    return mismatches == 0 ? null : new KeyDivergence(key, mismatches, firstMismatch);
+  }
+
+  private static Map<String, List<Change>> read(Path log, String prefix) throws IOException {
+    DataLogReader reader = new DataLogReader(log.toString());
+    if (!reader.isValid()) {
+      throw new IOException(log + " isn't a valid WPILOG");
+    }
+
+    Map<Integer, String> names = new HashMap<>();
+    Map<String, List<Change>> series = new HashMap<>();
+    for (DataLogRecord record : reader) {
+      if (record.isStart()) {
+        DataLogRecord.StartRecordData start = record.getStartData();
+        if (start.name.startsWith(prefix)) {
+          names.put(start.entry, start.name.substring(prefix.length()));
+        }
+      } else if (record.isFinish()) {
+        names.remove(record.getFinishEntry());
+      } else if (!record.isControl()) {
+        String name = names.get(record.getEntry());
+        if (name != null) {
+          series
+              .computeIfAbsent(name, k -> new ArrayList<>())
+              .add(new Change(record.getTimestamp(), record.getRaw()));
+        }
+      }
+    }
+    return series;
+  }
+
+  private static double toDouble(Change change) {
+    return ByteBuffer.wrap(change.value).order(ByteOrder.LITTLE_ENDIAN).getDouble();
+  }
+
+  private static double mean(List<Change> changes) {
+    if (changes.isEmpty()) return Double.NaN;
+    double sum = 0.0;
+    for (Change change : changes) {
+      sum += toDouble(change);
+    }
+    return sum / changes.size();
+  }
+
+  private static double max(List<Change> changes) {
+    double max = Double.NaN;
+    for (Change change : changes) {
+      double value = toDouble(change);
+      if (Double.isNaN(max) || value > max) max = value;
+    }
+    return max;
+  }
+}
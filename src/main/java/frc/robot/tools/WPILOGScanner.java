@@ -0,0 +1,160 @@
+package frc.robot.tools;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streams through a WPILOG file, handing only the records for keys that were asked for to a
+ * handler. The file is memory mapped and nothing is allocated per data record, so a match log gets
+ * scanned about as fast as the disk can page it in and memory use doesn't depend on its size
+ */
+public final class WPILOGScanner {
+  /** Gets the records for one key */
+  public interface RecordHandler {
+    /**
+     * Called for each record of the key, in file order
+     *
+     * @param timestampMicros the record's timestamp
+     * @param data the whole mapped file, little endian. Only read it, don't keep it
+     * @param offset where the record's payload starts in data
+     * @param length how long the payload is
+     */
+    void accept(long timestampMicros, MappedByteBuffer data, int offset, int length);
+  }
+
+  private static final byte[] MAGIC = "WPILOG".getBytes(StandardCharsets.US_ASCII);
+  private static final int CONTROL_START = 0;
+  private static final int CONTROL_FINISH = 1;
+
+  private final Path path;
+  private final Map<String, RecordHandler> handlers = new HashMap<>();
+
+  private long lastTimestampMicros = 0;
+
+  public WPILOGScanner(Path path) {
+    this.path = path;
+  }
+
+  /**
+   * Asks for the records of a key
+   *
+   * @param key the full key, like /RealOutputs/Superstructure/State
+   * @param handler what to hand the records to
+   * @return this scanner
+   */
+  public WPILOGScanner subscribe(String key, RecordHandler handler) {
+    handlers.put(key, handler);
+    return this;
+  }
+
+  /**
+   * Goes through the whole file once
+   *
+   * @throws IOException if the file can't be read or isn't a WPILOG
+   */
+  public void scan() throws IOException {
+    MappedByteBuffer data;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException(path + " is too big to map in one go");
+      }
+      data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    data.order(ByteOrder.LITTLE_ENDIAN);
+
+    int limit = data.limit();
+    if (limit < 12) {
+      throw new IOException(path + " isn't a WPILOG");
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (data.get(i) != MAGIC[i]) {
+        throw new IOException(path + " isn't a WPILOG");
+      }
+    }
+    int position = 12 + data.getInt(8);
+
+    // Indexed by entry id. Ids are small and reused, so an array beats a map
+    RecordHandler[] byEntry = new RecordHandler[256];
+    while (position < limit) {
+      int header = data.get(position) & 0xff;
+      int idLength = (header & 0b11) + 1;
+      int sizeLength = ((header >> 2) & 0b11) + 1;
+      int timestampLength = ((header >> 4) & 0b111) + 1;
+      int headerLength = 1 + idLength + sizeLength + timestampLength;
+      if (position + headerLength > limit) break;
+
+      int entry = (int) readUnsigned(data, position + 1, idLength);
+      int size = (int) readUnsigned(data, position + 1 + idLength, sizeLength);
+      long timestamp = readUnsigned(data, position + 1 + idLength + sizeLength, timestampLength);
+      int payload = position + headerLength;
+      // The file was cut off mid record, e.g. the robot lost power
+      if (payload + size > limit) break;
+
+      lastTimestampMicros = Math.max(lastTimestampMicros, timestamp);
+      if (entry == 0) {
+        int type = data.get(payload);
+        if (type == CONTROL_START) {
+          int id = data.getInt(payload + 1);
+          int nameLength = data.getInt(payload + 5);
+          RecordHandler handler = handlers.get(readString(data, payload + 9, nameLength));
+          if (id >= byEntry.length) {
+            byEntry = Arrays.copyOf(byEntry, Math.max(id + 1, byEntry.length * 2));
+          }
+          byEntry[id] = handler;
+        } else if (type == CONTROL_FINISH) {
+          int id = data.getInt(payload + 1);
+          if (id < byEntry.length) byEntry[id] = null;
+        }
+      } else if (entry < byEntry.length && byEntry[entry] != null) {
+        byEntry[entry].accept(timestamp, data, payload, size);
+      }
+      position = payload + size;
+    }
+  }
+
+  /**
+   * Gets the newest timestamp in the file. Only valid after {@link #scan()}
+   *
+   * @return the timestamp in microseconds
+   */
+  public long getLastTimestampMicros() {
+    return lastTimestampMicros;
+  }
+
+  private static long readUnsigned(MappedByteBuffer data, int offset, int length) {
+    long value = 0;
+    for (int i = 0; i < length; i++) {
+      value |= (long) (data.get(offset + i) & 0xff) << (8 * i);
+    }
+    return value;
+  }
+
+  private static String readString(MappedByteBuffer data, int offset, int length) {
+    byte[] bytes = new byte[length];
+    data.get(offset, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /** Reads a boolean payload */
+  public static boolean getBoolean(MappedByteBuffer data, int offset) {
+    return data.get(offset) != 0;
+  }
+
+  /** Reads an int64 payload */
+  public static long getInteger(MappedByteBuffer data, int offset) {
+    return data.getLong(offset);
+  }
+
+  /** Reads a double payload */
+  public static double getDouble(MappedByteBuffer data, int offset) {
+    return data.getDouble(offset);
+  }
+}
@@ -0,0 +1,88 @@
+package frc.robot.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Counts how many bytes robotPeriodic allocates on the main thread and any other tracked threads
+ * (like the IO workers). GC pauses on the roboRIO's small heap cause loop overruns, so this should
+ * stay low and flat. Loops over the budget get counted so a regression shows up in the log
+ */
+public final class AllocationMonitor {
+  public static final long BUDGET_BYTES = 16 * 1024;
+
+  private static final com.sun.management.ThreadMXBean threadBean;
+  private static final boolean supported;
+
+  static {
+    if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+        && bean.isThreadAllocatedMemorySupported()) {
+      bean.setThreadAllocatedMemoryEnabled(true);
+      threadBean = bean;
+      supported = true;
+    } else {
+      threadBean = null;
+      supported = false;
+    }
+  }
+
+  private static final List<Thread> trackedThreads = new ArrayList<>();
+  private static long[] threadIds = new long[0];
+
+  private static long loopStartBytes = 0;
+  private static long lastLoopBytes = 0;
+  private static long overBudgetLoops = 0;
+
+  private AllocationMonitor() {}
+
+  /** Whether this JVM can count allocations per thread. Nothing gets measured if it can't */
+  public static boolean isSupported() {
+    return supported;
+  }
+
+  /** How many bytes the last loop allocated */
+  public static long getLastLoopBytes() {
+    return lastLoopBytes;
+  }
+
+  /**
+   * Counts another thread's allocations as part of the loop
+   *
+   * @param thread a thread that does work for the main loop
+   */
+  public static synchronized void track(Thread thread) {
+    trackedThreads.add(thread);
+    threadIds = new long[trackedThreads.size()];
+    for (int i = 0; i < threadIds.length; i++) {
+      threadIds[i] = trackedThreads.get(i).getId();
+    }
+  }
+
+  private static long allocatedBytes() {
+    long total = threadBean.getCurrentThreadAllocatedBytes();
+    for (long id : threadIds) {
+      // Single id version doesn't allocate an array
+      total += Math.max(0, threadBean.getThreadAllocatedBytes(id));
+    }
+    return total;
+  }
+
+  /** Call at the very start of robotPeriodic */
+  public static void startLoop() {
+    if (!supported) return;
+    loopStartBytes = allocatedBytes();
+  }
+
+  /** Call at the very end of robotPeriodic */
+  public static void endLoop() {
+    if (!supported) return;
+    lastLoopBytes = allocatedBytes() - loopStartBytes;
+    if (lastLoopBytes > BUDGET_BYTES) {
+      overBudgetLoops++;
+    }
+    Logger.recordOutput("AllocationMonitor/Bytes Per Loop", lastLoopBytes);
+    Logger.recordOutput("AllocationMonitor/Over Budget Loops", overBudgetLoops);
+  }
+}
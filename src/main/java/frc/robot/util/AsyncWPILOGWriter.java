@@ -0,0 +1,512 @@
+package frc.robot.util;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import org.littletonrobotics.junction.LogDataReceiver;
+import org.littletonrobotics.junction.LogTable;
+import org.littletonrobotics.junction.LogTable.LogValue;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Writes WPILOG files without ever waiting on the USB stick in the common case. Each cycle's
+ * changed entries are encoded into a preallocated byte ring, and a background thread flushes the
+ * ring to disk in big batches with a FileChannel. USB write latency spikes just let the ring fill
+ * up for a bit
+ *
+ * <p>If the ring does fill up, the {@link BackpressurePolicy} decides what happens. Inputs are
+ * never dropped since replay needs them, but outputs can be, since replay regenerates them
+ *
+ * <p>Like AdvantageKit's WPILOGWriter, the log starts out with a random name and gets renamed once
+ * the clock has been set from the driver station and again once there's match info. If the file
+ * can't be opened (no USB stick yet), opening is retried every second until it works
+ */
+public class AsyncWPILOGWriter implements LogDataReceiver {
+  public enum BackpressurePolicy {
+    // Wait for the flush thread to make room. Nothing is lost, but the logger falls behind
+    BLOCK,
+    // Drop the cycle's outputs if there's no room for them. They get written again next cycle
+    DROP_DIAGNOSTICS
+  }
+
+  private static final int RING_CAPACITY = 4 * 1024 * 1024;
+  // Flush once this much is waiting, or every flush period, whichever comes first
+  private static final int FLUSH_BATCH_BYTES = 256 * 1024;
+  private static final long FLUSH_PERIOD_NANOS = 250_000_000;
+
+  private static final String EXTRA_HEADER = "AdvantageKit";
+  private static final String ENTRY_METADATA = "{\"source\":\"AdvantageKit\"}";
+  private static final String TIMESTAMP_KEY = "/Timestamp";
+
+  private static final long OPEN_RETRY_MICROS = 1_000_000;
+  // How long the DS has to be attached with a valid clock before the date is trusted
+  private static final long TIME_SYNC_DELAY_MICROS = 5_000_000;
+  private static final DateTimeFormatter DATE_FORMAT =
+      DateTimeFormatter.ofPattern("yy-MM-dd_HH-mm-ss");
+
+  private final String folder;
+  private final BackpressurePolicy policy;
+
+  private final byte[] ring = new byte[RING_CAPACITY];
+  // Total bytes ever written into and flushed out of the ring. Only ever increase
+  private final AtomicLong head = new AtomicLong();
+  private final AtomicLong tail = new AtomicLong();
+
+  private final AtomicLong droppedBytes = new AtomicLong();
+  private final AtomicLong lateBytes = new AtomicLong();
+  private final AtomicLong flushedBytes = new AtomicLong();
+  private final AtomicLong maxFlushNanos = new AtomicLong();
+
+  // Receiver thread only
+  private final Map<String, Integer> entryIds = new HashMap<>();
+  private final Map<String, LogValue> lastValues = new HashMap<>();
+  private final List<String> pendingDiagnosticKeys = new ArrayList<>();
+  private final Encoder critical = new Encoder();
+  private final Encoder diagnostic = new Encoder();
+  private final Encoder payload = new Encoder();
+  private int nextEntryId = 1;
+  private int timestampId = 0;
+  // Held so iterating the table doesn't make a new lambda every cycle
+  private final BiConsumer<String, LogValue> writeField = this::writeField;
+  private long cycleTimestamp = 0;
+
+  // Receiver thread only. What goes in the file name
+  private final String randomIdentifier = String.format("%04x", new Random().nextInt(0x10000));
+  private String fileName;
+  private LocalDateTime logDate = null;
+  private long timeSyncStartMicros = -1;
+  private String matchText = null;
+  private String eventName = "";
+  private long lastOpenAttemptMicros = 0;
+  private boolean reportedOpenFailure = false;
+
+  // Set by the receiver thread once the file's open, read by the flush thread
+  private volatile FileChannel channel = null;
+  private Thread flushThread = null;
+  private volatile boolean running = false;
+
+  /**
+   * Creates a new writer
+   *
+   * @param folder the folder to put the log in
+   * @param policy what to do when the ring is full
+   */
+  public AsyncWPILOGWriter(String folder, BackpressurePolicy policy) {
+    this.folder = folder;
+    this.policy = policy;
+  }
+
+  @Override
+  public void start() {
+    fileName = buildFileName();
+    running = true;
+    flushThread = new Thread(this::flushLoop, "AsyncWPILOGWriter");
+    flushThread.setDaemon(true);
+    flushThread.start();
+    tryOpen(0);
+  }
+
+  // Opens the file and writes the header. Anything logged before it opens is lost
+  private boolean tryOpen(long timestamp) {
+    lastOpenAttemptMicros = timestamp;
+    FileChannel opened;
+    try {
+      opened =
+          FileChannel.open(
+              Path.of(folder, fileName),
+              StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING);
+    } catch (IOException e) {
+      // Only once, it's retried every second
+      if (!reportedOpenFailure) {
+        DriverStation.reportError(
+            "Failed to open log file, retrying every second: " + e.getMessage(), false);
+        reportedOpenFailure = true;
+      }
+      return false;
+    }
+    if (reportedOpenFailure) {
+      DriverStation.reportWarning("Opened log file " + Path.of(folder, fileName), false);
+    }
+
+    // Set before anything goes in the ring so the flush thread has somewhere to write it
+    channel = opened;
+
+    // Header: magic, version 1.0, then the extra header string
+    byte[] extraHeader = EXTRA_HEADER.getBytes(StandardCharsets.UTF_8);
+    critical.clear();
+    critical.putBytes("WPILOG".getBytes(StandardCharsets.US_ASCII));
+    critical.putInt(0x0100, 2);
+    critical.putInt(extraHeader.length, 4);
+    critical.putBytes(extraHeader);
+    timestampId = startEntry(critical, TIMESTAMP_KEY, "int64", timestamp);
+    offer(critical);
+    return true;
+  }
+
+  // Same naming as AdvantageKit's WPILOGWriter
+  private String buildFileName() {
+    StringBuilder name = new StringBuilder("akit_");
+    name.append(logDate == null ? randomIdentifier : DATE_FORMAT.format(logDate));
+    if (!eventName.isEmpty()) name.append('_').append(eventName);
+    if (matchText != null) name.append('_').append(matchText);
+    return name.append(".wpilog").toString();
+  }
+
+  // Renames the log once the date or match is known. Only does any work when one of them changes
+  private void updateFileName(LogTable table) {
+    boolean changed = false;
+
+    if (logDate == null) {
+      if ((table.get("DriverStation/DSAttached", false)
+              && table.get("SystemStats/SystemTimeValid", false))
+          || RobotBase.isSimulation()) {
+        if (timeSyncStartMicros < 0) {
+          timeSyncStartMicros = cycleTimestamp;
+        } else if (cycleTimestamp - timeSyncStartMicros > TIME_SYNC_DELAY_MICROS) {
+          logDate = LocalDateTime.now();
+          changed = true;
+        }
+      } else {
+        timeSyncStartMicros = -1;
+      }
+    }
+
+    if (matchText == null) {
+      String matchType =
+          switch ((int) table.get("DriverStation/MatchType", 0)) {
+            case 1 -> "p";
+            case 2 -> "q";
+            case 3 -> "e";
+            default -> null;
+          };
+      if (matchType != null) {
+        matchText = matchType + table.get("DriverStation/MatchNumber", 0);
+        changed = true;
+      }
+    }
+
+    // Same string object every cycle unless it actually changed
+    String event = table.get("DriverStation/EventName", "");
+    if (!event.equalsIgnoreCase(eventName)) {
+      eventName = event.toLowerCase();
+      changed = true;
+    }
+
+    if (!changed) return;
+    String newFileName = buildFileName();
+    if (newFileName.equals(fileName)) return;
+    if (channel != null) {
+      // The open channel keeps writing to the file under its new name
+      try {
+        Files.move(Path.of(folder, fileName), Path.of(folder, newFileName));
+      } catch (IOException e) {
+        DriverStation.reportError("Failed to rename log file: " + e.getMessage(), false);
+        return;
+      }
+    }
+    System.out.println("[AsyncWPILOGWriter] Renaming log to " + Path.of(folder, newFileName));
+    fileName = newFileName;
+  }
+
+  @Override
+  public void end() {
+    if (flushThread == null) return;
+    running = false;
+    LockSupport.unpark(flushThread);
+    try {
+      flushThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public void putTable(LogTable table) throws InterruptedException {
+    cycleTimestamp = table.getTimestamp();
+    updateFileName(table);
+    if (channel == null
+        && (cycleTimestamp - lastOpenAttemptMicros < OPEN_RETRY_MICROS
+            || !tryOpen(cycleTimestamp))) {
+      return;
+    }
+
+    critical.clear();
+    diagnostic.clear();
+    pendingDiagnosticKeys.clear();
+
+    payload.clear();
+    payload.putLong(cycleTimestamp);
+    writeRecord(critical, timestampId, cycleTimestamp, payload);
+
+    // forEach walks the table's map without an iterator
+    table.getAll(false).forEach(writeField);
+
+    if (policy == BackpressurePolicy.DROP_DIAGNOSTICS
+        && free() < critical.size() + diagnostic.size()) {
+      droppedBytes.addAndGet(diagnostic.size());
+      // Forget what was dropped so it gets written again next cycle
+      for (String key : pendingDiagnosticKeys) {
+        lastValues.remove(key);
+      }
+      offer(critical);
+    } else {
+      offer(critical);
+      offer(diagnostic);
+    }
+  }
+
+  private void writeField(String key, LogValue value) {
+    if (value.equals(lastValues.get(key))) return;
+
+    // Start records always go in the critical part so data never shows up before its entry
+    Integer id = entryIds.get(key);
+    if (id == null) {
+      id = startEntry(critical, key, value.getWPILOGType(), cycleTimestamp);
+      entryIds.put(key, id);
+    }
+
+    boolean isDiagnostic = isDiagnostic(key);
+    encodeValue(value);
+    writeRecord(isDiagnostic ? diagnostic : critical, id, cycleTimestamp, payload);
+    lastValues.put(key, value);
+    if (isDiagnostic) {
+      pendingDiagnosticKeys.add(key);
+    }
+  }
+
+  /** Logs how the writer is keeping up. Call from the main loop, not the receiver thread */
+  public void recordStats() {
+    Logger.recordOutput("AsyncWPILOGWriter/Buffered Bytes", head.get() - tail.get());
+    Logger.recordOutput("AsyncWPILOGWriter/Dropped Bytes", droppedBytes.get());
+    Logger.recordOutput("AsyncWPILOGWriter/Late Bytes", lateBytes.get());
+    Logger.recordOutput("AsyncWPILOGWriter/Flushed Bytes", flushedBytes.get());
+    Logger.recordOutput("AsyncWPILOGWriter/Max Flush Ms", maxFlushNanos.get() / 1e6);
+  }
+
+  private static boolean isDiagnostic(String key) {
+    // Replay regenerates outputs, so they're the only thing safe to lose
+    return key.startsWith("/RealOutputs/") || key.startsWith("/ReplayOutputs/");
+  }
+
+  private long free() {
+    return RING_CAPACITY - (head.get() - tail.get());
+  }
+
+  // Copies an encoded chunk into the ring, waiting for room if there isn't any
+  private void offer(Encoder encoder) {
+    int size = encoder.size();
+    if (size == 0) return;
+
+    if (free() < size) {
+      // Either BLOCK, or critical data that can't be dropped
+      lateBytes.addAndGet(size);
+      LockSupport.unpark(flushThread);
+      while (free() < size) {
+        LockSupport.parkNanos(1_000_000);
+      }
+    }
+
+    long writeIndex = head.get();
+    int start = (int) (writeIndex % RING_CAPACITY);
+    int firstPart = Math.min(size, RING_CAPACITY - start);
+    System.arraycopy(encoder.array(), 0, ring, start, firstPart);
+    System.arraycopy(encoder.array(), firstPart, ring, 0, size - firstPart);
+    // Publish after the bytes are in
+    head.lazySet(writeIndex + size);
+
+    if (head.get() - tail.get() >= FLUSH_BATCH_BYTES && flushThread != null) {
+      LockSupport.unpark(flushThread);
+    }
+  }
+
+  private void flushLoop() {
+    ByteBuffer view = ByteBuffer.wrap(ring);
+    while (true) {
+      LockSupport.parkNanos(FLUSH_PERIOD_NANOS);
+      boolean stopping = !running;
+
+      long readIndex = tail.get();
+      long available = head.get() - readIndex;
+      if (available > 0) {
+        long start = System.nanoTime();
+        try {
+          // At most two writes since the data might wrap around the end of the ring
+          int offset = (int) (readIndex % RING_CAPACITY);
+          int firstPart = (int) Math.min(available, RING_CAPACITY - offset);
+          view.limit(offset + firstPart).position(offset);
+          while (view.hasRemaining()) channel.write(view);
+          view.limit((int) available - firstPart).position(0);
+          while (view.hasRemaining()) channel.write(view);
+        } catch (IOException e) {
+          DriverStation.reportError("Failed to write log file: " + e.getMessage(), false);
+        }
+        long duration = System.nanoTime() - start;
+        if (duration > maxFlushNanos.get()) maxFlushNanos.set(duration);
+
+        flushedBytes.addAndGet(available);
+        // Hand the space back
+        tail.lazySet(readIndex + available);
+      }
+
+      if (stopping) {
+        // Never opened, so nothing to close
+        if (channel == null) return;
+        try {
+          channel.force(true);
+          channel.close();
+        } catch (IOException e) {
+          DriverStation.reportError("Failed to close log file: " + e.getMessage(), false);
+        }
+        return;
+      }
+    }
+  }
+
+  private int startEntry(Encoder target, String key, String type, long timestamp) {
+    int id = nextEntryId++;
+    byte[] name = key.getBytes(StandardCharsets.UTF_8);
+    byte[] typeBytes = type.getBytes(StandardCharsets.UTF_8);
+    byte[] metadata = ENTRY_METADATA.getBytes(StandardCharsets.UTF_8);
+
+    // Control record (entry 0) with type 0 (start)
+    payload.clear();
+    payload.putByte(0);
+    payload.putInt(id, 4);
+    payload.putInt(name.length, 4);
+    payload.putBytes(name);
+    payload.putInt(typeBytes.length, 4);
+    payload.putBytes(typeBytes);
+    payload.putInt(metadata.length, 4);
+    payload.putBytes(metadata);
+    writeRecord(target, 0, timestamp, payload);
+    return id;
+  }
+
+  private void encodeValue(LogValue value) {
+    payload.clear();
+    switch (value.type) {
+      case Raw -> payload.putBytes(value.getRaw());
+      case Boolean -> payload.putByte(value.getBoolean() ? 1 : 0);
+      case Integer -> payload.putLong(value.getInteger());
+      case Float -> payload.putInt(Float.floatToIntBits(value.getFloat()), 4);
+      case Double -> payload.putLong(Double.doubleToLongBits(value.getDouble()));
+      case String -> payload.putBytes(value.getString().getBytes(StandardCharsets.UTF_8));
+      case BooleanArray -> {
+        for (boolean element : value.getBooleanArray()) payload.putByte(element ? 1 : 0);
+      }
+      case IntegerArray -> {
+        for (long element : value.getIntegerArray()) payload.putLong(element);
+      }
+      case FloatArray -> {
+        for (float element : value.getFloatArray()) {
+          payload.putInt(Float.floatToIntBits(element), 4);
+        }
+      }
+      case DoubleArray -> {
+        for (double element : value.getDoubleArray()) {
+          payload.putLong(Double.doubleToLongBits(element));
+        }
+      }
+      case StringArray -> {
+        String[] strings = value.getStringArray();
+        payload.putInt(strings.length, 4);
+        for (String element : strings) {
+          byte[] bytes = element.getBytes(StandardCharsets.UTF_8);
+          payload.putInt(bytes.length, 4);
+          payload.putBytes(bytes);
+        }
+      }
+    }
+  }
+
+  // Record header is a bitfield of how many bytes the id, size and timestamp each take, then those
+  // fields, then the payload
+  private static void writeRecord(Encoder target, int id, long timestamp, Encoder payload) {
+    int idLength = byteLength(id, 4);
+    int sizeLength = byteLength(payload.size(), 4);
+    int timestampLength = byteLength(timestamp, 8);
+
+    target.putByte((idLength - 1) | ((sizeLength - 1) << 2) | ((timestampLength - 1) << 4));
+    target.putInt(id, idLength);
+    target.putInt(payload.size(), sizeLength);
+    target.putInt(timestamp, timestampLength);
+    target.putBytes(payload.array(), payload.size());
+  }
+
+  private static int byteLength(long value, int max) {
+    int length = 1;
+    while (length < max && (value >>> (8 * length)) != 0) length++;
+    return length;
+  }
+
+  /** Growable little-endian byte buffer that's reused every cycle */
+  private static final class Encoder {
+    private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+    void clear() {
+      buffer.clear();
+    }
+
+    int size() {
+      return buffer.position();
+    }
+
+    byte[] array() {
+      return buffer.array();
+    }
+
+    private void ensure(int bytes) {
+      if (buffer.remaining() >= bytes) return;
+      ByteBuffer bigger =
+          ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes))
+              .order(ByteOrder.LITTLE_ENDIAN);
+      buffer.flip();
+      bigger.put(buffer);
+      buffer = bigger;
+    }
+
+    void putByte(int value) {
+      ensure(1);
+      buffer.put((byte) value);
+    }
+
+    void putInt(long value, int length) {
+      ensure(length);
+      for (int i = 0; i < length; i++) {
+        buffer.put((byte) (value >>> (8 * i)));
+      }
+    }
+
+    void putLong(long value) {
+      putInt(value, 8);
+    }
+
+    void putBytes(byte[] bytes) {
+      putBytes(bytes, bytes.length);
+    }
+
+    void putBytes(byte[] bytes, int length) {
+      ensure(length);
+      buffer.put(bytes, 0, length);
+    }
+  }
+}
@@ -0,0 +1,166 @@
+package frc.robot.util;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.CANBus;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Picks status signal update frequencies so each CAN bus stays under a target utilization. IO
+ * classes say how much each signal matters instead of hard-coding a rate, and once everything is
+ * constructed the least important tiers get slowed down until the estimated load fits
+ */
+public final class CANBusBudget {
+  /** How much a signal matters, from most to least */
+  public enum SignalTier {
+    // Read by the high frequency sampler. Never slowed down
+    SAMPLED(HighFrequencySampler.FREQUENCY_HZ, HighFrequencySampler.FREQUENCY_HZ),
+    // Used by control logic (positions, velocities, beambreaks, panel current)
+    CONTROL(100.0, 50.0),
+    // Only logged (voltages, supply currents)
+    DIAGNOSTIC(50.0, 10.0),
+    // Temperatures, which change over seconds. Never slowed down either, Phoenix raises any rate
+    // under 4 Hz back up to 4 and they still need logging
+    THERMAL(4.0, 4.0);
+
+    final double maxFrequencyHz;
+    final double minFrequencyHz;
+
+    private SignalTier(double maxFrequencyHz, double minFrequencyHz) {
+      this.maxFrequencyHz = maxFrequencyHz;
+      this.minFrequencyHz = minFrequencyHz;
+    }
+  }
+
+  public static final double TARGET_UTILIZATION = 0.6;
+
+  // Rough time one status frame takes on the wire, including stuffing and overhead
+  private static final double CAN_2_FRAME_SECONDS = 130e-6;
+  private static final double CAN_FD_FRAME_SECONDS = 40e-6;
+
+  // How often measured utilization is read (loops)
+  private static final int MEASURE_PERIOD_LOOPS = 50;
+
+  private static final class Bus {
+    final CANBus canBus;
+    final double frameSeconds;
+    final Map<SignalTier, List<BaseStatusSignal>> signalsByTier = new LinkedHashMap<>();
+    final double[] frequenciesHz = new double[SignalTier.values().length];
+
+    final String name;
+    final String predictedKey;
+    final String measuredKey;
+
+    Bus(String network) {
+      canBus = new CANBus(network);
+      frameSeconds = canBus.isNetworkFD() ? CAN_FD_FRAME_SECONDS : CAN_2_FRAME_SECONDS;
+
+      name = network.isEmpty() ? "rio" : network;
+      predictedKey = "CANBusBudget/" + name + "/Predicted Utilization";
+      measuredKey = "CANBusBudget/" + name + "/Measured Utilization";
+    }
+
+    double predictUtilization() {
+      double utilization = 0.0;
+      for (SignalTier tier : signalsByTier.keySet()) {
+        // Counts every signal as its own frame, which overestimates a bit
+        utilization +=
+            signalsByTier.get(tier).size() * frequenciesHz[tier.ordinal()] * frameSeconds;
+      }
+      return utilization;
+    }
+  }
+
+  private static final Map<String, Bus> buses = new LinkedHashMap<>();
+  private static Bus[] busArray = new Bus[0];
+  private static int loopCount = 0;
+
+  private CANBusBudget() {}
+
+  /**
+   * Adds signals to a bus's budget. Call from IO constructors, before {@link #apply()}
+   *
+   * @param network the name of the CAN bus the signals' device is on
+   * @param tier how much the signals matter
+   * @param signals the signals
+   */
+  public static void add(String network, SignalTier tier, BaseStatusSignal... signals) {
+    // The rio bus can be called either of these
+    String busName = network.equals("rio") ? "" : network;
+    buses
+        .computeIfAbsent(busName, Bus::new)
+        .signalsByTier
+        .computeIfAbsent(tier, (unused) -> new ArrayList<>())
+        .addAll(Arrays.asList(signals));
+  }
+
+  /**
+   * Works out and sets every signal's update frequency. Call once after all IO is constructed and
+   * before the logger starts, since the chosen rates go in the metadata
+   */
+  public static void apply() {
+    SignalTier[] tiers = SignalTier.values();
+    for (Bus bus : buses.values()) {
+      // A signal can be in more than one tier, like one the IO reads that's also sampled. It's
+      // still one frame on the bus, so it only stays in its most important tier
+      Set<BaseStatusSignal> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+      for (SignalTier tier : tiers) {
+        List<BaseStatusSignal> tierSignals = bus.signalsByTier.get(tier);
+        if (tierSignals != null) {
+          tierSignals.removeIf(signal -> !seen.add(signal));
+        }
+      }
+
+      for (SignalTier tier : tiers) {
+        bus.frequenciesHz[tier.ordinal()] = tier.maxFrequencyHz;
+      }
+
+      // Halve the least important tier that can still go slower until the load fits
+      while (bus.predictUtilization() > TARGET_UTILIZATION) {
+        SignalTier slowest = null;
+        for (int i = tiers.length - 1; i >= 0; i--) {
+          if (bus.frequenciesHz[i] > tiers[i].minFrequencyHz) {
+            slowest = tiers[i];
+            break;
+          }
+        }
+        // Everything's at its minimum, nothing more we can do
+        if (slowest == null) break;
+
+        bus.frequenciesHz[slowest.ordinal()] =
+            Math.max(slowest.minFrequencyHz, bus.frequenciesHz[slowest.ordinal()] / 2.0);
+      }
+
+      for (int i = 0; i < tiers.length; i++) {
+        List<BaseStatusSignal> tierSignals = bus.signalsByTier.get(tiers[i]);
+        if (tierSignals == null) continue;
+        BaseStatusSignal.setUpdateFrequencyForAll(
+            bus.frequenciesHz[i], tierSignals.toArray(new BaseStatusSignal[0]));
+      }
+      for (SignalTier tier : bus.signalsByTier.keySet()) {
+        Logger.recordMetadata(
+            "CANBusBudget/" + bus.name + "/" + tier + " Hz",
+            Double.toString(bus.frequenciesHz[tier.ordinal()]));
+      }
+    }
+    busArray = buses.values().toArray(new Bus[0]);
+  }
+
+  /** Logs predicted and measured bus utilization. Call once per loop */
+  public static void periodic() {
+    if (loopCount++ % MEASURE_PERIOD_LOOPS != 0) return;
+    if (!LoadShedder.detailedOutputsEnabled()) return;
+
+    for (Bus bus : busArray) {
+      Logger.recordOutput(bus.predictedKey, bus.predictUtilization());
+      Logger.recordOutput(bus.measuredKey, bus.canBus.getStatus().BusUtilization);
+    }
+  }
+}
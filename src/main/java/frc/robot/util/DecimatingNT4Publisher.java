@@ -0,0 +1,196 @@
+package frc.robot.util;
+
+import edu.wpi.first.networktables.BooleanEntry;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.littletonrobotics.junction.LogDataReceiver;
+import org.littletonrobotics.junction.LogTable;
+import org.littletonrobotics.junction.LogTable.LogValue;
+import org.littletonrobotics.junction.networktables.NT4Publisher;
+
+/**
+ * NT4Publisher that only publishes what the dashboards need. Topics can be allowed, denied or
+ * limited to a max rate with patterns like "Arm/**", and whole cycles can be skipped when the robot
+ * is short on time. The USB log still gets every key every cycle
+ *
+ * <p>Patterns are matched against the key with the RealOutputs/ or ReplayOutputs/ part taken off,
+ * so "Arm/**" covers both the arm's inputs and its outputs. "*" matches within one level and "**"
+ * matches across levels. Rules are checked in the order they're added and the first match wins.
+ * Anything that doesn't match gets published every cycle
+ *
+ * <p>Flipping "Publish Everything" on the dashboard turns the rules off without a redeploy
+ */
+public class DecimatingNT4Publisher implements LogDataReceiver {
+  private static final String PUBLISH_EVERYTHING_TOPIC =
+      "/SmartDashboard/NT Publisher/Publish Everything";
+
+  private static final class Rule {
+    final Pattern pattern;
+    final boolean allow;
+    // 0 for no limit
+    final long minPeriodMicros;
+
+    Rule(String glob, boolean allow, long minPeriodMicros) {
+      pattern = Pattern.compile(globToRegex(glob));
+      this.allow = allow;
+      this.minPeriodMicros = minPeriodMicros;
+    }
+  }
+
+  private static final class Topic {
+    final boolean allowed;
+    final long minPeriodMicros;
+    long nextPublishMicros = 0;
+
+    Topic(boolean allowed, long minPeriodMicros) {
+      this.allowed = allowed;
+      this.minPeriodMicros = minPeriodMicros;
+    }
+  }
+
+  private final NT4Publisher publisher = new NT4Publisher();
+  private final BooleanEntry publishEverything;
+
+  private final List<Rule> rules = new ArrayList<>();
+  // What the rules decided for each key. Only touched on the receiver thread
+  private final Map<String, Topic> topics = new HashMap<>();
+
+  // Publish 1 out of every this many cycles. Set from the main thread, read on the receiver thread
+  private volatile int decimation = 1;
+  private int cycleCount = 0;
+
+  public DecimatingNT4Publisher() {
+    publishEverything =
+        NetworkTableInstance.getDefault().getBooleanTopic(PUBLISH_EVERYTHING_TOPIC).getEntry(false);
+    publishEverything.setDefault(false);
+  }
+
+  /**
+   * Publishes topics matching patterns every cycle. Only needed to carve out exceptions to later
+   * rules
+   *
+   * @param patterns the topic patterns
+   * @return this publisher
+   */
+  public DecimatingNT4Publisher allow(String... patterns) {
+    for (String pattern : patterns) {
+      rules.add(new Rule(pattern, true, 0));
+    }
+    return this;
+  }
+
+  /**
+   * Stops topics matching patterns from being published
+   *
+   * @param patterns the topic patterns
+   * @return this publisher
+   */
+  public DecimatingNT4Publisher deny(String... patterns) {
+    for (String pattern : patterns) {
+      rules.add(new Rule(pattern, false, 0));
+    }
+    return this;
+  }
+
+  /**
+   * Publishes topics matching patterns at most so many times a second
+   *
+   * @param maxHz the max publish rate
+   * @param patterns the topic patterns
+   * @return this publisher
+   */
+  public DecimatingNT4Publisher limitRate(double maxHz, String... patterns) {
+    for (String pattern : patterns) {
+      rules.add(new Rule(pattern, true, (long) (1e6 / maxHz)));
+    }
+    return this;
+  }
+
+  /**
+   * Sets how many cycles go by per publish
+   *
+   * @param decimation 1 to publish every cycle, 2 for every other, etc
+   */
+  public void setDecimation(int decimation) {
+    this.decimation = Math.max(1, decimation);
+  }
+
+  @Override
+  public void start() {
+    publisher.start();
+  }
+
+  @Override
+  public void end() {
+    publisher.end();
+  }
+
+  @Override
+  public void putTable(LogTable table) throws InterruptedException {
+    if (cycleCount++ % decimation != 0) return;
+    if (rules.isEmpty() || publishEverything.get()) {
+      publisher.putTable(table);
+      return;
+    }
+
+    long now = table.getTimestamp();
+    LogTable filtered = new LogTable(now);
+    for (Map.Entry<String, LogValue> entry : table.getAll(false).entrySet()) {
+      String key = entry.getKey();
+      Topic topic = topics.get(key);
+      if (topic == null) {
+        topic = match(key);
+        topics.put(key, topic);
+      }
+
+      if (!topic.allowed) continue;
+      if (topic.minPeriodMicros > 0) {
+        if (now < topic.nextPublishMicros) continue;
+        topic.nextPublishMicros = now + topic.minPeriodMicros;
+      }
+      // Keys from the root table start with a slash, which put adds back
+      filtered.put(key.substring(1), entry.getValue());
+    }
+    // NT4Publisher only sends what changed since the last table, so a topic left out for a few
+    // cycles gets sent again when it's next let through
+    publisher.putTable(filtered);
+  }
+
+  private Topic match(String key) {
+    String name = key.startsWith("/") ? key.substring(1) : key;
+    if (name.startsWith("RealOutputs/")) {
+      name = name.substring("RealOutputs/".length());
+    } else if (name.startsWith("ReplayOutputs/")) {
+      name = name.substring("ReplayOutputs/".length());
+    }
+
+    for (Rule rule : rules) {
+      if (rule.pattern.matcher(name).matches()) {
+        return new Topic(rule.allow, rule.minPeriodMicros);
+      }
+    }
+    return new Topic(true, 0);
+  }
+
+  private static String globToRegex(String glob) {
+    StringBuilder regex = new StringBuilder();
+    for (int i = 0; i < glob.length(); i++) {
+      char c = glob.charAt(i);
+      if (c == '*') {
+        if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+          regex.append(".*");
+          i++;
+        } else {
+          regex.append("[^/]*");
+        }
+      } else {
+        regex.append(Pattern.quote(String.valueOf(c)));
+      }
+    }
+    return regex.toString();
+  }
+}
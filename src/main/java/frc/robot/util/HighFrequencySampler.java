@@ -0,0 +1,191 @@
+package frc.robot.util;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.CANBus;
+import com.ctre.phoenix6.StatusSignal;
+import edu.wpi.first.wpilibj.RobotController;
+import frc.robot.util.CANBusBudget.SignalTier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background thread that samples Phoenix signals faster than the main loop. On a CANivore it
+ * blocks on the signals with waitForAll so every sample lines up with a CAN frame, otherwise it
+ * just refreshes on a timer. Samples are timestamped and pushed into lock-free queues that the IO
+ * classes drain into their inputs once per loop
+ */
+public class HighFrequencySampler extends Thread {
+  public static final double FREQUENCY_HZ = 250.0;
+
+  // A bit more than one loop's worth of samples
+  private static final int QUEUE_CAPACITY = 20;
+
+  private static HighFrequencySampler instance = null;
+
+  public static HighFrequencySampler getInstance() {
+    if (instance == null) {
+      instance = new HighFrequencySampler();
+    }
+    return instance;
+  }
+
+  /**
+   * Single-producer single-consumer ring of samples. Each sample is a timestamp plus one value per
+   * signal. The sampler thread is the only writer and the IO reading it is the only reader
+   */
+  public static class SampleQueue {
+    private final int width;
+    private final double[] timestamps = new double[QUEUE_CAPACITY];
+    private final double[] values;
+
+    // Next slot to write and next slot to read. Only ever increase
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    // What drain hands back when there's nothing waiting. Empty arrays can be shared
+    private final double[][] empty;
+
+    private SampleQueue(int width) {
+      this.width = width;
+      values = new double[QUEUE_CAPACITY * width];
+      empty = new double[width + 1][0];
+    }
+
+    // Sampler thread only
+    private void offer(double timestamp, BaseStatusSignal[] signals, int offset) {
+      long writeIndex = head.get();
+      if (writeIndex - tail.get() >= QUEUE_CAPACITY) {
+        // Nobody drained in time, drop the new sample rather than block
+        droppedCount.incrementAndGet();
+        return;
+      }
+
+      int slot = (int) (writeIndex % QUEUE_CAPACITY);
+      timestamps[slot] = timestamp;
+      for (int i = 0; i < width; i++) {
+        values[slot * width + i] = signals[offset + i].getValueAsDouble();
+      }
+      // Publish the slot after it's written
+      head.lazySet(writeIndex + 1);
+    }
+
+    /**
+     * Takes every sample that's waiting. The arrays are new every time unless there was nothing to
+     * take
+     *
+     * @return the timestamps in seconds at index 0, then one array per signal in the order they
+     *     were registered
+     */
+    public double[][] drain() {
+      long readIndex = tail.get();
+      int count = (int) (head.get() - readIndex);
+
+      if (count == 0) return empty;
+
+      // The logger keeps a reference to the arrays until they're written, so these can't be reused
+      double[][] samples = new double[width + 1][count];
+      for (int i = 0; i < count; i++) {
+        int slot = (int) ((readIndex + i) % QUEUE_CAPACITY);
+        samples[0][i] = timestamps[slot];
+        for (int j = 0; j < width; j++) {
+          samples[j + 1][i] = values[slot * width + j];
+        }
+      }
+      // Hand the slots back to the sampler
+      tail.lazySet(readIndex + count);
+      return samples;
+    }
+
+    public long getDroppedCount() {
+      return droppedCount.get();
+    }
+  }
+
+  private final List<BaseStatusSignal> registeredSignals = new ArrayList<>();
+  private final List<SampleQueue> queues = new ArrayList<>();
+  private boolean allOnCANFD = true;
+
+  private BaseStatusSignal[] signals;
+  private SampleQueue[] queueArray;
+  private int[] offsets;
+
+  private HighFrequencySampler() {
+    setName("HighFrequencySampler");
+    setDaemon(true);
+  }
+
+  /**
+   * Registers signals to be sampled together. The {@link CANBusBudget} runs them at the sample rate
+   *
+   * @param network the name of the CAN bus the signals' device is on
+   * @param signals the signals to sample, the same ones the IO reads. The sampler clones them so
+   *     the main loop's refresh doesn't race it
+   * @return the queue the samples show up in
+   */
+  public SampleQueue register(String network, StatusSignal<?>... signals) {
+    if (isAlive()) {
+      throw new IllegalStateException("Can't register signals after the sampler has started");
+    }
+
+    // The originals, so the budget sees they're the same frames the IO already registered
+    CANBusBudget.add(network, SignalTier.SAMPLED, signals);
+    allOnCANFD &= new CANBus(network).isNetworkFD();
+
+    SampleQueue queue = new SampleQueue(signals.length);
+    for (StatusSignal<?> signal : signals) {
+      registeredSignals.add(signal.clone());
+    }
+    queues.add(queue);
+    return queue;
+  }
+
+  @Override
+  public synchronized void start() {
+    // Nothing to sample in sim
+    if (queues.isEmpty()) return;
+
+    signals = registeredSignals.toArray(new BaseStatusSignal[0]);
+    queueArray = queues.toArray(new SampleQueue[0]);
+    offsets = new int[queueArray.length];
+    int offset = 0;
+    for (int i = 0; i < queueArray.length; i++) {
+      offsets[i] = offset;
+      offset += queueArray[i].width;
+    }
+
+    super.start();
+  }
+
+  @Override
+  public void run() {
+    final double periodSeconds = 1.0 / FREQUENCY_HZ;
+    while (true) {
+      if (allOnCANFD) {
+        // Blocks until every signal has a new frame
+        BaseStatusSignal.waitForAll(2.0 * periodSeconds, signals);
+      } else {
+        try {
+          Thread.sleep((long) (periodSeconds * 1000.0));
+        } catch (InterruptedException e) {
+          return;
+        }
+        BaseStatusSignal.refreshAll(signals);
+      }
+
+      // Back the timestamp off by how old the data is
+      double timestamp = RobotController.getFPGATime() / 1e6;
+      double totalLatency = 0.0;
+      for (BaseStatusSignal signal : signals) {
+        totalLatency += signal.getTimestamp().getLatency();
+      }
+      timestamp -= totalLatency / signals.length;
+
+      for (int i = 0; i < queueArray.length; i++) {
+        queueArray[i].offer(timestamp, signals, offsets[i]);
+      }
+    }
+  }
+}
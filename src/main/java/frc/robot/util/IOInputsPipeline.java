@@ -0,0 +1,177 @@
+package frc.robot.util;
+
+import frc.robot.util.LoopProfiler.Section;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import org.littletonrobotics.junction.Logger;
+import org.littletonrobotics.junction.inputs.LoggableInputs;
+
+/**
+ * Runs every registered IO's updateInputs concurrently on a small fixed set of worker threads,
+ * waits for all of them, then hands the inputs to the logger in registration order. The logging
+ * order never depends on which read finished first, so replay stays deterministic
+ */
+public class IOInputsPipeline {
+  private static final class Stage {
+    final String key;
+    final Runnable update;
+    final LoggableInputs inputs;
+    final InputRatePolicy.Filter rateFilter;
+    long durationNanos = 0;
+
+    Stage(String key, Runnable update, LoggableInputs inputs, InputRatePolicy.Filter rateFilter) {
+      this.key = key;
+      this.update = update;
+      this.inputs = inputs;
+      this.rateFilter = rateFilter;
+    }
+
+    void run() {
+      long start = System.nanoTime();
+      update.run();
+      if (rateFilter != null) {
+        rateFilter.apply(inputs);
+      }
+      durationNanos = System.nanoTime() - start;
+    }
+  }
+
+  private final List<Stage> stages = new ArrayList<>();
+
+  // One lane per worker plus one for the main thread. Stages are dealt out round robin
+  private final int laneCount;
+  private Stage[][] lanes;
+  private Stage[] orderedStages;
+
+  private final Semaphore[] startSignals;
+  private final Semaphore doneSignal = new Semaphore(0);
+  private volatile Throwable workerError = null;
+
+  private boolean started = false;
+
+  private final Section loggingSection = LoopProfiler.section("Logging/Inputs");
+
+  /**
+   * Creates a new pipeline
+   *
+   * @param workerThreads how many background threads to read on. The main thread also reads
+   */
+  public IOInputsPipeline(int workerThreads) {
+    laneCount = workerThreads + 1;
+    startSignals = new Semaphore[workerThreads];
+    for (int i = 0; i < workerThreads; i++) {
+      startSignals[i] = new Semaphore(0);
+    }
+  }
+
+  /**
+   * Registers an IO to be read every loop. Inputs are logged in the order they're registered
+   *
+   * @param key the key to log the inputs under
+   * @param update reads the IO into the inputs. May run on a worker thread
+   * @param inputs the inputs to log after the read
+   */
+  public void register(String key, Runnable update, LoggableInputs inputs) {
+    register(key, update, inputs, null);
+  }
+
+  /**
+   * Registers an IO to be read every loop, holding some fields according to a rate policy before
+   * they're logged. Inputs are logged in the order they're registered
+   *
+   * @param key the key to log the inputs under
+   * @param update reads the IO into the inputs. May run on a worker thread
+   * @param inputs the inputs to log after the read
+   * @param ratePolicy how often each field may change, or null to let every field change each loop
+   */
+  public void register(
+      String key, Runnable update, LoggableInputs inputs, InputRatePolicy ratePolicy) {
+    if (started) {
+      throw new IllegalStateException("Can't register inputs after the pipeline has started");
+    }
+    stages.add(new Stage(key, update, inputs, ratePolicy == null ? null : ratePolicy.newFilter()));
+  }
+
+  private void start() {
+    started = true;
+    orderedStages = stages.toArray(new Stage[0]);
+
+    lanes = new Stage[laneCount][];
+    for (int lane = 0; lane < laneCount; lane++) {
+      List<Stage> laneStages = new ArrayList<>();
+      for (int i = lane; i < stages.size(); i += laneCount) {
+        laneStages.add(stages.get(i));
+      }
+      lanes[lane] = laneStages.toArray(new Stage[0]);
+    }
+
+    for (int i = 0; i < startSignals.length; i++) {
+      final Semaphore startSignal = startSignals[i];
+      // Lane 0 belongs to the main thread
+      final Stage[] laneStages = lanes[i + 1];
+      Thread worker =
+          new Thread(
+              () -> {
+                while (true) {
+                  startSignal.acquireUninterruptibly();
+                  try {
+                    for (Stage stage : laneStages) {
+                      stage.run();
+                    }
+                  } catch (Throwable t) {
+                    workerError = t;
+                  }
+                  doneSignal.release();
+                }
+              },
+              "IOInputs-" + i);
+      worker.setDaemon(true);
+      worker.start();
+      AllocationMonitor.track(worker);
+    }
+  }
+
+  /** Reads every IO, then logs all the inputs. Call once per loop before the scheduler runs */
+  public void run() {
+    if (!started) {
+      start();
+    }
+
+    long start = System.nanoTime();
+
+    for (Semaphore startSignal : startSignals) {
+      startSignal.release();
+    }
+    try {
+      for (Stage stage : lanes[0]) {
+        stage.run();
+      }
+    } finally {
+      // Workers have to finish before anything touches the inputs again
+      doneSignal.acquireUninterruptibly(startSignals.length);
+    }
+
+    if (workerError != null) {
+      Throwable error = workerError;
+      workerError = null;
+      throw new RuntimeException("Reading IO inputs failed", error);
+    }
+
+    long wallNanos = System.nanoTime() - start;
+
+    // Always the same order no matter which thread read what
+    long serialNanos = 0;
+    loggingSection.start();
+    for (Stage stage : orderedStages) {
+      Logger.processInputs(stage.key, stage.inputs);
+      serialNanos += stage.durationNanos;
+    }
+    loggingSection.stop();
+
+    if (!LoadShedder.detailedOutputsEnabled()) return;
+    Logger.recordOutput("IOInputsPipeline/Wall Micros", wallNanos / 1000.0);
+    Logger.recordOutput("IOInputsPipeline/Serial Micros", serialNanos / 1000.0);
+    Logger.recordOutput("IOInputsPipeline/Saved Micros", (serialNanos - wallNanos) / 1000.0);
+  }
+}
@@ -0,0 +1,143 @@
+package frc.robot.util;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Says how often each field of an inputs class is allowed to change. Fields that aren't listed
+ * change every cycle. The rest are held at their last value until their turn comes up (every Nth
+ * cycle) or they move by more than a deadband. Holding happens before the inputs are logged, so
+ * robot code, the log and replay all see exactly the same values, and since the log writers only
+ * write values that changed, held fields cost nothing
+ *
+ * <p>Only use this on fields that are just logged (temperatures, supply currents and such), never
+ * on anything control logic reads
+ */
+public class InputRatePolicy {
+  private static final class Rule {
+    final Field field;
+    // Hold for this many cycles, or 0 to use the deadband instead
+    final int period;
+    final double deadband;
+
+    Rule(Field field, int period, double deadband) {
+      this.field = field;
+      this.period = period;
+      this.deadband = deadband;
+    }
+  }
+
+  private final Class<?> inputsClass;
+  private final List<Rule> rules = new ArrayList<>();
+
+  private InputRatePolicy(Class<?> inputsClass) {
+    this.inputsClass = inputsClass;
+  }
+
+  /**
+   * Starts a policy for an inputs class
+   *
+   * @param inputsClass the class with the fields (not the AutoLogged one)
+   * @return a policy with no rules
+   */
+  public static InputRatePolicy forClass(Class<?> inputsClass) {
+    return new InputRatePolicy(inputsClass);
+  }
+
+  /**
+   * Lets fields change only every so many cycles
+   *
+   * @param cycles how many cycles per change
+   * @param fieldNames the names of double fields
+   * @return this policy
+   */
+  public InputRatePolicy everyNth(int cycles, String... fieldNames) {
+    for (String name : fieldNames) {
+      rules.add(new Rule(getField(name), cycles, 0.0));
+    }
+    return this;
+  }
+
+  /**
+   * Lets fields change only when they move more than a deadband
+   *
+   * @param deadband how far a field has to move from its held value
+   * @param fieldNames the names of double fields
+   * @return this policy
+   */
+  public InputRatePolicy onChange(double deadband, String... fieldNames) {
+    for (String name : fieldNames) {
+      rules.add(new Rule(getField(name), 0, deadband));
+    }
+    return this;
+  }
+
+  private Field getField(String name) {
+    try {
+      Field field = inputsClass.getField(name);
+      if (field.getType() != double.class) {
+        throw new IllegalArgumentException(name + " isn't a double");
+      }
+      return field;
+    } catch (NoSuchFieldException e) {
+      throw new IllegalArgumentException(inputsClass.getSimpleName() + " has no field " + name, e);
+    }
+  }
+
+  /**
+   * Makes a filter that applies this policy. Each inputs object needs its own, since it remembers
+   * held values
+   *
+   * @return a new filter
+   */
+  public Filter newFilter() {
+    return new Filter(rules.toArray(new Rule[0]));
+  }
+
+  /** Holds fields of one inputs object according to a policy */
+  public static final class Filter {
+    private final Rule[] rules;
+    private final double[] held;
+    private long cycle = 0;
+
+    private Filter(Rule[] rules) {
+      this.rules = rules;
+      held = new double[rules.length];
+    }
+
+    /**
+     * Holds fields that aren't allowed to change this cycle. Call after the IO updates the inputs
+     * and before they're logged
+     *
+     * @param inputs the inputs object
+     */
+    public void apply(Object inputs) {
+      try {
+        for (int i = 0; i < rules.length; i++) {
+          Rule rule = rules[i];
+          double value = rule.field.getDouble(inputs);
+
+          boolean update;
+          if (cycle == 0) {
+            update = true;
+          } else if (rule.period > 0) {
+            update = cycle % rule.period == 0;
+          } else {
+            update = Math.abs(value - held[i]) > rule.deadband;
+          }
+
+          if (update) {
+            held[i] = value;
+          } else {
+            rule.field.setDouble(inputs, held[i]);
+          }
+        }
+      } catch (IllegalAccessException e) {
+        // Fields are checked to be public when the policy is made
+        throw new IllegalStateException(e);
+      }
+      cycle++;
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.filter.LinearFilter;
+import edu.wpi.first.wpilibj.RobotController;
+import org.littletonrobotics.junction.AutoLog;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Watches how long robotPeriodic takes and turns off non-critical work when it gets close to the
+ * loop period, one level at a time, then turns it back on once there's headroom again. Levels are
+ * cumulative. The loop time is logged as an input, so replay sheds on exactly the loops the robot
+ * did and the outputs that shedding skips match up
+ */
+public final class LoadShedder {
+  public enum ShedLevel {
+    // Everything's on
+    NONE,
+    // Dashboards get every few cycles instead of every one
+    DECIMATE_NT,
+    // Diagnostic and thermal signals stop being refreshed
+    SKIP_DIAGNOSTICS,
+    // Profiling and bus stats stop being logged
+    SKIP_DETAILED_OUTPUTS
+  }
+
+  @AutoLog
+  public static class LoadShedderInputs {
+    // How long the loop's work took, not the time between loops, which is never under the period
+    public double loopMs = 0.0;
+  }
+
+  public static final boolean ENABLED = true;
+
+  // Averaged robotPeriodic time above this sheds a level, below this restores one. Logging and
+  // simulationPeriodic run after robotPeriodic in the same 20 ms, so shed with room left for them
+  private static final double SHED_THRESHOLD_MS = 16.0;
+  private static final double RESTORE_THRESHOLD_MS = 12.0;
+  // Loops to wait after changing level before changing again. Restoring is slower so it doesn't
+  // flip back and forth
+  private static final int SHED_HOLD_LOOPS = 25;
+  private static final int RESTORE_HOLD_LOOPS = 150;
+
+  private static final int NT_DECIMATION = 5;
+
+  private static final LinearFilter loopFilter = LinearFilter.movingAverage(10);
+  private static final LoadShedderInputsAutoLogged inputs = new LoadShedderInputsAutoLogged();
+
+  private static DecimatingNT4Publisher ntPublisher = null;
+  private static ShedLevel level = ShedLevel.NONE;
+  private static long loopStartMicros = 0;
+  private static int loopsSinceChange = 0;
+  private static long transitionCount = 0;
+
+  private LoadShedder() {}
+
+  /**
+   * Gives the shedder the NT publisher to decimate
+   *
+   * @param publisher the publisher the logger is using, or null if there isn't one
+   */
+  public static void setNTPublisher(DecimatingNT4Publisher publisher) {
+    ntPublisher = publisher;
+  }
+
+  /** Call at the very start of robotPeriodic */
+  public static void startLoop() {
+    loopStartMicros = RobotController.getFPGATime();
+  }
+
+  /** Call at the very end of robotPeriodic. Changes take effect next loop */
+  public static void endLoop() {
+    inputs.loopMs = (RobotController.getFPGATime() - loopStartMicros) / 1000.0;
+    // Replaces the measured time with the robot's in replay
+    Logger.processInputs("LoadShedder", inputs);
+    double loopMs = loopFilter.calculate(inputs.loopMs);
+    loopsSinceChange++;
+
+    Logger.recordOutput("LoadShedder/Average Loop Ms", loopMs);
+    if (!ENABLED) return;
+
+    ShedLevel[] levels = ShedLevel.values();
+    if (loopMs > SHED_THRESHOLD_MS
+        && loopsSinceChange >= SHED_HOLD_LOOPS
+        && level.ordinal() < levels.length - 1) {
+      setLevel(levels[level.ordinal() + 1]);
+    } else if (loopMs < RESTORE_THRESHOLD_MS
+        && loopsSinceChange >= RESTORE_HOLD_LOOPS
+        && level.ordinal() > 0) {
+      setLevel(levels[level.ordinal() - 1]);
+    }
+
+    Logger.recordOutput("LoadShedder/Level", level);
+  }
+
+  private static void setLevel(ShedLevel newLevel) {
+    Logger.recordOutput("LoadShedder/Last Transition", level + " -> " + newLevel);
+    Logger.recordOutput("LoadShedder/Transitions", ++transitionCount);
+    level = newLevel;
+    loopsSinceChange = 0;
+
+    if (ntPublisher != null) {
+      ntPublisher.setDecimation(isShedding(ShedLevel.DECIMATE_NT) ? NT_DECIMATION : 1);
+    }
+    PhoenixSignals.setRefreshDiagnostics(!isShedding(ShedLevel.SKIP_DIAGNOSTICS));
+  }
+
+  private static boolean isShedding(ShedLevel shedLevel) {
+    return level.ordinal() >= shedLevel.ordinal();
+  }
+
+  /**
+   * Checks if extra outputs (profiling, bus stats and such) should be logged this loop
+   *
+   * @return false if they're being shed
+   */
+  public static boolean detailedOutputsEnabled() {
+    return !isShedding(ShedLevel.SKIP_DETAILED_OUTPUTS);
+  }
+
+  public static ShedLevel getLevel() {
+    return level;
+  }
+}
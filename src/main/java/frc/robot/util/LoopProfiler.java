@@ -0,0 +1,154 @@
+package frc.robot.util;
+
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Times parts of the loop so an overrun can be pinned on something. Each section keeps its last few
+ * seconds of timings, and once a second the p50, p99 and max of each get logged under Perf/. Only
+ * uses System.nanoTime(), so it works the same in sim and on the robot
+ *
+ * <p>Every subsystem's periodic and simulationPeriodic are timed by {@link ProfiledSubsystem}.
+ * Commands are timed with the scheduler's execute callback and trigger polling with a binding at
+ * the end of the button loop, both set up by {@link #install()}
+ */
+public final class LoopProfiler {
+  public static final boolean ENABLED = true;
+
+  // 5 seconds of loops
+  private static final int WINDOW = 250;
+  private static final int PUBLISH_PERIOD_LOOPS = 50;
+
+  /** Something that gets timed. Only use from the main thread */
+  public static final class Section {
+    private final String p50Key;
+    private final String p99Key;
+    private final String maxKey;
+
+    private final long[] window = new long[WINDOW];
+    private int size = 0;
+    private int next = 0;
+    private long startNanos = 0;
+
+    private Section(String name) {
+      p50Key = "Perf/" + name + "/P50 Micros";
+      p99Key = "Perf/" + name + "/P99 Micros";
+      maxKey = "Perf/" + name + "/Max Micros";
+    }
+
+    public void start() {
+      startNanos = System.nanoTime();
+    }
+
+    public void stop() {
+      long now = System.nanoTime();
+      record(now - startNanos);
+      lastStopNanos = now;
+    }
+
+    public void record(long nanos) {
+      if (!ENABLED) return;
+      window[next] = nanos;
+      next = (next + 1) % WINDOW;
+      if (size < WINDOW) size++;
+    }
+
+    private void publish() {
+      if (size == 0) return;
+      System.arraycopy(window, 0, scratch, 0, size);
+      Arrays.sort(scratch, 0, size);
+      Logger.recordOutput(p50Key, scratch[(size - 1) / 2] / 1000.0);
+      Logger.recordOutput(p99Key, scratch[(int) ((size - 1) * 0.99)] / 1000.0);
+      Logger.recordOutput(maxKey, scratch[size - 1] / 1000.0);
+    }
+  }
+
+  private static final Map<String, Section> sections = new LinkedHashMap<>();
+  private static Section[] sectionArray = new Section[0];
+  // Shared by every section's publish so it doesn't allocate
+  private static final long[] scratch = new long[WINDOW];
+
+  // Keyed by command name so recreated commands share a section
+  private static final Map<String, Section> commandSections = new HashMap<>();
+
+  private static long schedulerStartNanos = 0;
+  private static long lastStopNanos = 0;
+  private static long commandMarkNanos = 0;
+  private static int loopCount = 0;
+
+  private static final Section schedulerSection = section("Scheduler");
+  private static final Section triggersSection = section("Triggers");
+
+  private LoopProfiler() {}
+
+  /**
+   * Gets the section with a name, making it if it doesn't exist
+   *
+   * @param name what to log the timings under, after Perf/
+   * @return the section
+   */
+  public static Section section(String name) {
+    Section section = sections.get(name);
+    if (section == null) {
+      section = new Section(name);
+      sections.put(name, section);
+      sectionArray = sections.values().toArray(new Section[0]);
+    }
+    return section;
+  }
+
+  /**
+   * Hooks into the command scheduler. Call after everything that binds triggers is constructed,
+   * since the end-of-polling binding has to be the last one
+   */
+  public static void install() {
+    CommandScheduler.getInstance()
+        .getDefaultButtonLoop()
+        .bind(
+            () -> {
+              long now = System.nanoTime();
+              // Subsystem periodics and simulationPeriodics are the only sections that stop inside
+              // the scheduler before this, so polling started when the last of them did
+              triggersSection.record(now - Math.max(schedulerStartNanos, lastStopNanos));
+              commandMarkNanos = now;
+            });
+
+    // Runs right after each command's execute, so the time since the last mark is that command's
+    CommandScheduler.getInstance()
+        .onCommandExecute(
+            (command) -> {
+              long now = System.nanoTime();
+              Section section = commandSections.get(command.getName());
+              if (section == null) {
+                section = section("Commands/" + command.getName());
+                commandSections.put(command.getName(), section);
+              }
+              section.record(now - commandMarkNanos);
+              commandMarkNanos = now;
+            });
+  }
+
+  /** Call right before CommandScheduler.run() */
+  public static void startScheduler() {
+    schedulerStartNanos = System.nanoTime();
+    schedulerSection.startNanos = schedulerStartNanos;
+  }
+
+  /** Call right after CommandScheduler.run() */
+  public static void stopScheduler() {
+    schedulerSection.stop();
+  }
+
+  /** Publishes every section's stats every so often. Call once per loop */
+  public static void periodic() {
+    if (!ENABLED || loopCount++ % PUBLISH_PERIOD_LOOPS != 0) return;
+    if (!LoadShedder.detailedOutputsEnabled()) return;
+    for (Section section : sectionArray) {
+      section.publish();
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package frc.robot.util;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import edu.wpi.first.wpilibj.RobotController;
+import frc.robot.util.CANBusBudget.SignalTier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Every Phoenix status signal the robot reads gets registered here when its IO is constructed.
+ * Once per loop, before any IO reads its inputs, all of them are refreshed with one batched call
+ * per CAN bus. IO classes then only read the cached values. Registering also puts the signals in
+ * the {@link CANBusBudget}, which decides how often they update
+ */
+public final class PhoenixSignals {
+  // Keyed by CAN bus name ("" or "rio" for the roboRIO bus, anything else is a CANivore).
+  // Diagnostic and thermal signals are kept apart so they can be skipped when the loop is behind
+  private static final Map<String, List<BaseStatusSignal>> signalsByBus = new LinkedHashMap<>();
+  private static final Map<String, List<BaseStatusSignal>> diagnosticSignalsByBus =
+      new LinkedHashMap<>();
+
+  // Flattened copies of the maps so refreshing doesn't iterate collections. One array per bus
+  // either way, so every bus is still a single refreshAll call
+  private static BaseStatusSignal[][] busSignals = new BaseStatusSignal[0][];
+  private static BaseStatusSignal[][] busSignalsWithDiagnostics = new BaseStatusSignal[0][];
+
+  private static boolean refreshDiagnostics = true;
+  private static long failedRefreshes = 0;
+
+  private PhoenixSignals() {}
+
+  /**
+   * Registers signals to be refreshed every loop
+   *
+   * @param network the name of the CAN bus the signals' device is on
+   * @param tier how much the signals matter, which sets their update frequency
+   * @param signals the signals to refresh
+   */
+  public static void register(String network, SignalTier tier, BaseStatusSignal... signals) {
+    CANBusBudget.add(network, tier, signals);
+
+    // The rio bus can be called either of these
+    String bus = network.equals("rio") ? "" : network;
+    boolean diagnostic = tier == SignalTier.DIAGNOSTIC || tier == SignalTier.THERMAL;
+    (diagnostic ? diagnosticSignalsByBus : signalsByBus)
+        .computeIfAbsent(bus, (unused) -> new ArrayList<>())
+        .addAll(Arrays.asList(signals));
+
+    busSignals = flatten(false);
+    busSignalsWithDiagnostics = flatten(true);
+  }
+
+  private static BaseStatusSignal[][] flatten(boolean withDiagnostics) {
+    Map<String, List<BaseStatusSignal>> byBus = new LinkedHashMap<>();
+    signalsByBus.forEach((bus, signals) -> byBus.put(bus, new ArrayList<>(signals)));
+    if (withDiagnostics) {
+      diagnosticSignalsByBus.forEach(
+          (bus, signals) ->
+              byBus.computeIfAbsent(bus, (unused) -> new ArrayList<>()).addAll(signals));
+    }
+
+    BaseStatusSignal[][] flattened = new BaseStatusSignal[byBus.size()][];
+    int i = 0;
+    for (List<BaseStatusSignal> registered : byBus.values()) {
+      flattened[i++] = registered.toArray(new BaseStatusSignal[0]);
+    }
+    return flattened;
+  }
+
+  /**
+   * Sets whether diagnostic and thermal signals get refreshed. When they don't, IO keeps reading
+   * their last values
+   *
+   * @param enabled if they should be refreshed
+   */
+  public static void setRefreshDiagnostics(boolean enabled) {
+    refreshDiagnostics = enabled;
+  }
+
+  /**
+   * Gets when a signal's last frame was received on the FPGA clock, so it can be compared against
+   * robot code timestamps
+   *
+   * @param signal a refreshed signal
+   * @return the FPGA time in seconds
+   */
+  public static double getFPGATimestamp(BaseStatusSignal signal) {
+    return RobotController.getFPGATime() / 1e6 - signal.getTimestamp().getLatency();
+  }
+
+  /** Refreshes every registered signal, one call per bus. Call once per loop before reading IO */
+  public static void refreshAll() {
+    for (BaseStatusSignal[] signals : refreshDiagnostics ? busSignalsWithDiagnostics : busSignals) {
+      if (!BaseStatusSignal.refreshAll(signals).isOK()) {
+        failedRefreshes++;
+      }
+    }
+    Logger.recordOutput("PhoenixSignals/Failed Refreshes", failedRefreshes);
+  }
+}
@@ -0,0 +1,42 @@
+package frc.robot.util;
+
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.util.LoopProfiler.Section;
+
+/**
+ * A subsystem whose periodic and simulationPeriodic get timed by the {@link LoopProfiler}, as
+ * Perf/[name]/Periodic and Perf/[name]/Sim Periodic. Override {@link #profiledPeriodic()} and
+ * {@link #profiledSimulationPeriodic()} instead of the usual ones
+ */
+public abstract class ProfiledSubsystem extends SubsystemBase {
+  private final Section periodicSection;
+  private final Section simulationPeriodicSection;
+
+  /**
+   * @param profileName what to log the timings under, after Perf/
+   */
+  protected ProfiledSubsystem(String profileName) {
+    periodicSection = LoopProfiler.section(profileName + "/Periodic");
+    simulationPeriodicSection = LoopProfiler.section(profileName + "/Sim Periodic");
+  }
+
+  @Override
+  public final void periodic() {
+    periodicSection.start();
+    profiledPeriodic();
+    periodicSection.stop();
+  }
+
+  @Override
+  public final void simulationPeriodic() {
+    simulationPeriodicSection.start();
+    profiledSimulationPeriodic();
+    simulationPeriodicSection.stop();
+  }
+
+  /** Runs once per loop, like periodic */
+  protected void profiledPeriodic() {}
+
+  /** Runs once per loop in sim, like simulationPeriodic */
+  protected void profiledSimulationPeriodic() {}
+}
@@ -0,0 +1,131 @@
+package frc.robot.util;
+
+import com.ctre.phoenix6.controls.ControlRequest;
+import com.ctre.phoenix6.controls.MotionMagicVoltage;
+import com.ctre.phoenix6.controls.PositionVoltage;
+import com.ctre.phoenix6.controls.VelocityVoltage;
+import com.ctre.phoenix6.controls.VoltageOut;
+import com.ctre.phoenix6.hardware.TalonFX;
+import edu.wpi.first.wpilibj.RobotController;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Sits between IO and a TalonFX and drops control requests that match the last one sent (same
+ * type, setpoint, slot and FOC). Default commands send the same request every loop, so those calls
+ * are just extra CAN frames. Requests go out with an update frequency of 0 so Phoenix sends them
+ * once instead of repeating them at 100 Hz on its own. That leaves the keep-alive as the only
+ * resend, every keep-alive period in case the motor missed it
+ */
+public class TalonFXControlFilter {
+  public static final double DEFAULT_KEEP_ALIVE_SECONDS = 0.1;
+
+  private enum ControlType {
+    VOLTAGE_OUT,
+    POSITION_VOLTAGE,
+    VELOCITY_VOLTAGE,
+    MOTION_MAGIC_VOLTAGE
+  }
+
+  private final TalonFX motor;
+  private final long keepAliveMicros;
+  private final String suppressedKey;
+
+  // Last request that actually went out. Null type means nothing has
+  private ControlType lastType = null;
+  private double lastSetpoint = 0.0;
+  private int lastSlot = 0;
+  private boolean lastEnableFOC = false;
+  private long lastSentMicros = 0;
+
+  private long suppressedCount = 0;
+
+  /**
+   * Creates a new filter with the default keep-alive period
+   *
+   * @param motor the motor to send requests to
+   */
+  public TalonFXControlFilter(TalonFX motor) {
+    this(motor, DEFAULT_KEEP_ALIVE_SECONDS);
+  }
+
+  /**
+   * Creates a new filter
+   *
+   * @param motor the motor to send requests to
+   * @param keepAliveSeconds how long a repeated request can be dropped before it's sent anyway
+   */
+  public TalonFXControlFilter(TalonFX motor, double keepAliveSeconds) {
+    this.motor = motor;
+    this.keepAliveMicros = (long) (keepAliveSeconds * 1e6);
+    // IDs are only unique per bus
+    String bus = motor.getNetwork().isEmpty() ? "rio" : motor.getNetwork();
+    suppressedKey =
+        "ControlFilter/" + bus + "/TalonFX " + motor.getDeviceID() + "/Suppressed Frames";
+  }
+
+  public void setControl(VoltageOut request) {
+    send(
+        request.withUpdateFreqHz(0), ControlType.VOLTAGE_OUT, request.Output, 0, request.EnableFOC);
+  }
+
+  public void setControl(PositionVoltage request) {
+    send(
+        request.withUpdateFreqHz(0),
+        ControlType.POSITION_VOLTAGE,
+        request.Position,
+        request.Slot,
+        request.EnableFOC);
+  }
+
+  public void setControl(VelocityVoltage request) {
+    send(
+        request.withUpdateFreqHz(0),
+        ControlType.VELOCITY_VOLTAGE,
+        request.Velocity,
+        request.Slot,
+        request.EnableFOC);
+  }
+
+  public void setControl(MotionMagicVoltage request) {
+    send(
+        request.withUpdateFreqHz(0),
+        ControlType.MOTION_MAGIC_VOLTAGE,
+        request.Position,
+        request.Slot,
+        request.EnableFOC);
+  }
+
+  /** Forces the next request out even if it matches the last one */
+  public void invalidate() {
+    lastType = null;
+  }
+
+  public long getSuppressedCount() {
+    return suppressedCount;
+  }
+
+  private void send(
+      ControlRequest request, ControlType type, double setpoint, int slot, boolean enableFOC) {
+    long now = RobotController.getFPGATime();
+    if (type == lastType
+        && setpoint == lastSetpoint
+        && slot == lastSlot
+        && enableFOC == lastEnableFOC
+        && now - lastSentMicros < keepAliveMicros) {
+      suppressedCount++;
+      Logger.recordOutput(suppressedKey, suppressedCount);
+      return;
+    }
+
+    if (motor.setControl(request).isOK()) {
+      lastType = type;
+      lastSetpoint = setpoint;
+      lastSlot = slot;
+      lastEnableFOC = enableFOC;
+      lastSentMicros = now;
+    } else {
+      // Try again next time instead of trusting the motor got it
+      lastType = null;
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package frc.robot.util;
+
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Fixed-size ring buffer of state machine transitions. Recording a transition only writes into
+ * preallocated primitive arrays, so it's safe to call from the main loop. Records are drained into
+ * the log once per loop as primitive arrays
+ */
+public class TransitionLog {
+  private static final int[] EMPTY_INTS = new int[0];
+  private static final long[] EMPTY_LONGS = new long[0];
+
+  // Keys are built once so draining doesn't concatenate strings every loop
+  private final String fromKey;
+  private final String toKey;
+  private final String timestampsKey;
+  private final String guardIdsKey;
+  private final String droppedKey;
+
+  private final int[] from;
+  private final int[] to;
+  private final long[] timestampsMicros;
+  private final int[] guardIds;
+
+  // Index of the oldest record and how many are waiting to be drained
+  private int head = 0;
+  private int size = 0;
+
+  private long droppedCount = 0;
+
+  /**
+   * Creates a new transition log
+   *
+   * @param key the log key the records are drained under
+   * @param capacity how many records can be buffered between drains
+   */
+  public TransitionLog(String key, int capacity) {
+    fromKey = key + "/From";
+    toKey = key + "/To";
+    timestampsKey = key + "/Timestamps";
+    guardIdsKey = key + "/Guard IDs";
+    droppedKey = key + "/Dropped";
+
+    from = new int[capacity];
+    to = new int[capacity];
+    timestampsMicros = new long[capacity];
+    guardIds = new int[capacity];
+  }
+
+  /**
+   * Records a transition. If the buffer is full the oldest record is overwritten
+   *
+   * @param fromState the state being left
+   * @param toState the state being entered
+   * @param timestampMicros the FPGA timestamp of the transition
+   * @param guardId which guard triggered the transition
+   */
+  public void record(int fromState, int toState, long timestampMicros, int guardId) {
+    int index = (head + size) % from.length;
+    if (size == from.length) {
+      // Full, drop the oldest
+      head = (head + 1) % from.length;
+      droppedCount++;
+    } else {
+      size++;
+    }
+
+    from[index] = fromState;
+    to[index] = toState;
+    timestampsMicros[index] = timestampMicros;
+    guardIds[index] = guardId;
+  }
+
+  /**
+   * Writes the buffered records to the log and empties the buffer. Only allocates when there's
+   * something to drain
+   */
+  public void drain() {
+    Logger.recordOutput(droppedKey, droppedCount);
+
+    if (size == 0) {
+      Logger.recordOutput(fromKey, EMPTY_INTS);
+      Logger.recordOutput(toKey, EMPTY_INTS);
+      Logger.recordOutput(timestampsKey, EMPTY_LONGS);
+      Logger.recordOutput(guardIdsKey, EMPTY_INTS);
+      return;
+    }
+
+    // The logger keeps a reference to the arrays until they're written, so these can't be reused
+    int[] fromOut = new int[size];
+    int[] toOut = new int[size];
+    long[] timestampsOut = new long[size];
+    int[] guardIdsOut = new int[size];
+    for (int i = 0; i < size; i++) {
+      int index = (head + i) % from.length;
+      fromOut[i] = from[index];
+      toOut[i] = to[index];
+      timestampsOut[i] = timestampsMicros[index];
+      guardIdsOut[i] = guardIds[index];
+    }
+
+    Logger.recordOutput(fromKey, fromOut);
+    Logger.recordOutput(toKey, toOut);
+    Logger.recordOutput(timestampsKey, timestampsOut);
+    Logger.recordOutput(guardIdsKey, guardIdsOut);
+
+    head = 0;
+    size = 0;
+  }
+}
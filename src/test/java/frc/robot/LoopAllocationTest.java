@@ -0,0 +1,94 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj.simulation.XboxControllerSim;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.sim.SimWorld;
+import frc.robot.util.AllocationMonitor;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.littletonrobotics.junction.LoggedCycle;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Fails if robotPeriodic allocates more than {@link AllocationMonitor}'s budget, so a change that
+ * starts allocating every loop gets caught before it makes it to the robot. Runs the real Robot in
+ * sim with the logger started and the NT publisher attached, so the inputs, outputs and profiling
+ * all get logged like they do on the robot, while the driver holds intake then shoot
+ */
+class LoopAllocationTest {
+  // Class loading and the JIT allocate plenty the first time through
+  private static final double WARMUP_SECONDS = 10.0;
+  private static final double MEASURED_SECONDS = 10.0;
+  // How long each trigger gets held for
+  private static final double HOLD_SECONDS = 1.0;
+
+  @Test
+  void robotPeriodicStaysUnderBudget() {
+    Assumptions.assumeTrue(
+        AllocationMonitor.isSupported(), "Per thread allocation counting isn't supported");
+    assertTrue(HAL.initialize(500, 0), "Couldn't initialize the HAL");
+    SimHooks.pauseTiming();
+    DriverStationSim.resetData();
+    DriverStationSim.setDsAttached(true);
+    DriverStationSim.setAllianceStationId(AllianceStationID.Red1);
+    DriverStationSim.setEnabled(true);
+    XboxControllerSim driver = new XboxControllerSim(0);
+
+    // Starts the logger. The logger can only start once, so this is the only test that does
+    Robot robot = new Robot();
+    try {
+      long warmupLoops = Math.round(WARMUP_SECONDS / robot.getPeriod());
+      long measuredLoops = Math.round(MEASURED_SECONDS / robot.getPeriod());
+      long holdLoops = Math.round(HOLD_SECONDS / robot.getPeriod());
+      long worstBytes = 0;
+      for (long i = 0; i < warmupLoops + measuredLoops; i++) {
+        boolean intaking = (i / holdLoops) % 2 == 0;
+        driver.setLeftTriggerAxis(intaking ? 1.0 : 0.0);
+        driver.setRightTriggerAxis(intaking ? 0.0 : 1.0);
+        loop(robot);
+        if (i >= warmupLoops) {
+          worstBytes = Math.max(worstBytes, AllocationMonitor.getLastLoopBytes());
+        }
+      }
+
+      assertTrue(
+          worstBytes <= AllocationMonitor.BUDGET_BYTES,
+          "A loop allocated "
+              + worstBytes
+              + " bytes, the budget is "
+              + AllocationMonitor.BUDGET_BYTES);
+    } finally {
+      Logger.end();
+      robot.close();
+      CommandScheduler scheduler = CommandScheduler.getInstance();
+      scheduler.cancelAll();
+      scheduler.unregisterAllSubsystems();
+      scheduler.getDefaultButtonLoop().clear();
+      DriverStationSim.resetData();
+      DriverStationSim.notifyNewData();
+      DriverStation.refreshData();
+      SimHooks.resumeTiming();
+      SimWorld.clear();
+    }
+  }
+
+  // One loop the way LoggedRobot runs it, minus waiting for the next period
+  private static void loop(Robot robot) {
+    SimHooks.stepTiming(robot.getPeriod());
+    DriverStationSim.notifyNewData();
+    DriverStation.refreshData();
+    LoggedCycle.beforeUser();
+    long userCodeStart = RobotController.getFPGATime();
+    robot.robotPeriodic();
+    robot.simulationPeriodic();
+    LoggedCycle.afterUser(RobotController.getFPGATime() - userCodeStart);
+  }
+}
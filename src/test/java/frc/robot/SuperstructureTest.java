@@ -0,0 +1,83 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import frc.robot.Superstructure.BallAction;
+import frc.robot.Superstructure.State;
+import frc.robot.sim.SimHarness;
+import frc.robot.subsystems.colorsensor.BallColorClassifier.BallColor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Drives the superstructure through the sim like a driver would, one fresh harness per test */
+class SuperstructureTest {
+  private SimHarness sim;
+
+  @BeforeEach
+  void setUp() {
+    sim = new SimHarness();
+    sim.enable();
+    sim.run(0.1);
+  }
+
+  @AfterEach
+  void tearDown() {
+    sim.close();
+  }
+
+  @Test
+  void intakesIndexesAndShoots() {
+    sim.pieces.addBall(BallColor.RED);
+    sim.driver.setLeftTriggerAxis(1.0);
+    assertTrue(sim.runUntil(() -> action() == BallAction.INTAKE, 0.5), "Never started intaking");
+    assertTrue(sim.runUntil(sim.intake::getBeambreakIsDetected, 2.0), "Ball never got in");
+
+    sim.driver.setLeftTriggerAxis(0.0);
+    assertTrue(sim.runUntil(() -> action() == BallAction.INDEX, 0.5), "Never started indexing");
+    assertEquals(1, sim.superstructure.getNumBalls());
+    assertTrue(sim.runUntil(() -> action() == BallAction.NONE, 3.0), "Never finished indexing");
+
+    sim.driver.setRightTriggerAxis(1.0);
+    assertTrue(sim.runUntil(() -> action() == BallAction.SHOOT, 3.0), "Never started shooting");
+    assertTrue(sim.runUntil(() -> sim.pieces.getBallsShot() == 1, 3.0), "Ball never left");
+    sim.driver.setRightTriggerAxis(0.0);
+    assertTrue(sim.runUntil(() -> action() == BallAction.NONE, 3.0), "Never finished shooting");
+    assertEquals(0, sim.superstructure.getNumBalls());
+  }
+
+  @Test
+  void rejectsTheOtherAlliancesBall() {
+    // The harness puts the robot on red
+    sim.pieces.addBall(BallColor.BLUE);
+    sim.driver.setLeftTriggerAxis(1.0);
+    assertTrue(sim.runUntil(() -> action() == BallAction.REJECT, 3.0), "Never started rejecting");
+    sim.driver.setLeftTriggerAxis(0.0);
+    assertTrue(sim.runUntil(() -> sim.pieces.getBallsRejected() == 1, 3.0), "Ball never left");
+    assertTrue(sim.runUntil(() -> action() == BallAction.NONE, 3.0), "Never stopped rejecting");
+    assertEquals(0, sim.superstructure.getNumBalls());
+  }
+
+  @Test
+  void closeLeavesNothingBehind() {
+    // Leave this harness mid intake with the trigger held
+    sim.pieces.addBall(BallColor.RED);
+    sim.driver.setLeftTriggerAxis(1.0);
+    assertTrue(sim.runUntil(() -> action() == BallAction.INTAKE, 0.5), "Never started intaking");
+    sim.close();
+
+    sim = new SimHarness();
+    assertEquals(State.IDLE, sim.superstructure.getState());
+    assertEquals(0, sim.pieces.getBallsInRobot());
+    sim.enable();
+    sim.run(1.0);
+    // The held trigger, the old ball and the old superstructure's bindings all went with it
+    assertEquals(State.IDLE, sim.superstructure.getState());
+    assertEquals(0, sim.pieces.getBallsInRobot());
+  }
+
+  private BallAction action() {
+    return sim.superstructure.getBallAction();
+  }
+}
@@ -0,0 +1,77 @@
+package frc.robot.subsystems.colorsensor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import frc.robot.subsystems.colorsensor.BallColorClassifier.BallColor;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class BallColorClassifierTest {
+  private static final int READINGS = 1024;
+  private static final int WARMUP_PASSES = 200;
+
+  @Test
+  void calibratedBallsClassifyAsThemselves() {
+    double[] red = BallColorClassifier.RED_BALL;
+    double[] blue = BallColorClassifier.BLUE_BALL;
+    assertEquals(BallColor.RED, BallColorClassifier.classify(red[0], red[2], 500));
+    assertEquals(BallColor.BLUE, BallColorClassifier.classify(blue[0], blue[2], 500));
+  }
+
+  @Test
+  void nothingCloseIsNone() {
+    double[] red = BallColorClassifier.RED_BALL;
+    assertEquals(
+        BallColor.NONE,
+        BallColorClassifier.classify(red[0], red[2], BallColorClassifier.MIN_PROXIMITY - 1));
+  }
+
+  @Test
+  void neitherBallIsUnknown() {
+    // Mostly green
+    assertEquals(BallColor.UNKNOWN, BallColorClassifier.classify(0.1, 0.1, 500));
+  }
+
+  @Test
+  void classifyDoesNotAllocate() {
+    double[][] readings = readings();
+    for (int i = 0; i < WARMUP_PASSES; i++) {
+      classifyAll(readings);
+    }
+
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long before = threads.getCurrentThreadAllocatedBytes();
+    classifyAll(readings);
+    long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+    assertEquals(0, allocated, "Classifying " + READINGS + " readings allocated");
+  }
+
+  // Spread around both balls and off towards neither, some with nothing in front of the sensor
+  private static double[][] readings() {
+    Random random = new Random(0);
+    double[][] readings = new double[READINGS][];
+    for (int i = 0; i < READINGS; i++) {
+      double[] center =
+          switch (i % 3) {
+            case 0 -> BallColorClassifier.RED_BALL;
+            case 1 -> BallColorClassifier.BLUE_BALL;
+            default -> new double[] {0.25, 0.5, 0.25};
+          };
+      double red = center[0] + random.nextGaussian() * 0.05;
+      double blue = center[2] + random.nextGaussian() * 0.05;
+      double proximity = random.nextInt(2048);
+      readings[i] = new double[] {red, 1.0 - red - blue, blue, proximity};
+    }
+    return readings;
+  }
+
+  private static int classifyAll(double[][] readings) {
+    int sum = 0;
+    for (double[] reading : readings) {
+      sum += BallColorClassifier.classify(reading[0], reading[2], (int) reading[3]).ordinal();
+    }
+    return sum;
+  }
+}
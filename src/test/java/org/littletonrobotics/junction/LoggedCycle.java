@@ -0,0 +1,24 @@
+package org.littletonrobotics.junction;
+
+/**
+ * The logger calls LoggedRobot makes around every loop, for tests that step a robot's loop by hand.
+ * Lives in the logger's package since the calls aren't public
+ */
+public final class LoggedCycle {
+  private LoggedCycle() {}
+
+  /** Call before the user code, like LoggedRobot does. Updates the timestamp and driver station */
+  public static void beforeUser() {
+    Logger.periodicBeforeUser();
+  }
+
+  /**
+   * Call after the user code, like LoggedRobot does. Records the outputs and hands the cycle to
+   * the receivers
+   *
+   * @param userCodeMicros how long the user code took
+   */
+  public static void afterUser(long userCodeMicros) {
+    Logger.periodicAfterUser(userCodeMicros, 0);
+  }
+}